@@ -0,0 +1,121 @@
+package com.example.wifisignaltracker;
+
+import com.example.wifisignaltracker.core.InstanceClusterer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits SSIDs shared by several physical access points (hotspot chains, default router names)
+ * into one instance per access point, using {@link InstanceClusterer}.
+ * Only SSIDs whose measurements spread wider than a single access point could reach are split.
+ * Their clustering is kept between refreshes and only fed the rows inserted since the last one.
+ * It holds each instance's aggregates and which instance every row joined, not the measurements
+ * themselves; an instance's measurements are reloaded from the database when it is opened, and
+ * kept until the SSID gets new rows.
+ */
+public class ApInstanceCache {
+
+    // A phone hears an access point up to about 300 m away, so all of its measurements lie
+    // within twice that of its strongest one
+    static final double REACH_METERS = 600;
+    // SSIDs whose measurements all fit within this span are taken to be a single access point
+    static final double SPLIT_MIN_EXTENT_METERS = 1000;
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private static class Entry {
+        final InstanceClusterer<SignalMeasurement> clusterer = new InstanceClusterer<>(REACH_METERS);
+        // Every instance shown so far by its earliest measurement, so ids of merged ones still resolve
+        final Map<Integer, InstanceClusterer<SignalMeasurement>.Instance> byFirstId = new HashMap<>();
+        // Row ids in insertion (and so id) order, and the instance each one joined
+        int[] rowIds = new int[16];
+        final List<InstanceClusterer<SignalMeasurement>.Instance> joined = new ArrayList<>();
+        int lastId;
+
+        // Last measurementsOf result, valid until rows are added
+        InstanceClusterer<SignalMeasurement>.Instance membersOf;
+        int membersLastId;
+        List<SignalMeasurement> members;
+
+        void add(SignalMeasurement m) {
+            InstanceClusterer<SignalMeasurement>.Instance instance = clusterer.add(m);
+            byFirstId.putIfAbsent(instance.getFirst().getId(), instance);
+            if (joined.size() == rowIds.length) rowIds = Arrays.copyOf(rowIds, rowIds.length * 2);
+            rowIds[joined.size()] = m.getId();
+            joined.add(instance);
+            lastId = m.getId();
+        }
+    }
+
+    private final SignalDao dao;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public ApInstanceCache(SignalDao dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * @return whether the SSID's measurements spread far enough to possibly belong to several access points
+     */
+    public static boolean mightSpanSeveralAps(SsidCentroid centroid) {
+        double latSpan = (centroid.maxLatitude - centroid.minLatitude) * METERS_PER_DEGREE;
+        double midLatitude = Math.toRadians((centroid.maxLatitude + centroid.minLatitude) / 2);
+        double lngSpan = (centroid.maxLongitude - centroid.minLongitude) * METERS_PER_DEGREE * Math.cos(midLatitude);
+        return Math.hypot(latSpan, lngSpan) > SPLIT_MIN_EXTENT_METERS;
+    }
+
+    /**
+     * Bring the SSID's clustering up to date with the database and return its instances,
+     * ordered by their earliest measurement. Runs on a background thread.
+     */
+    public synchronized List<InstanceClusterer<SignalMeasurement>.Instance> instancesOf(String ssid) {
+        return update(ssid).clusterer.instances();
+    }
+
+    /**
+     * Load the measurements of the instance whose earliest measurement is {@code instanceId}, or of
+     * the instance it has since been merged into. Runs on a background thread.
+     * @return the measurements in id order, so the first one identifies the instance now holding
+     *         them, or null if the SSID has no such instance
+     */
+    public synchronized List<SignalMeasurement> measurementsOf(String ssid, int instanceId) {
+        Entry entry = update(ssid);
+        InstanceClusterer<SignalMeasurement>.Instance shown = entry.byFirstId.get(instanceId);
+        if (shown == null) return null;
+        InstanceClusterer<SignalMeasurement>.Instance instance = shown.current();
+        if (instance == entry.membersOf && entry.lastId == entry.membersLastId) return entry.members;
+
+        List<SignalMeasurement> members = new ArrayList<>(instance.size());
+        int row = 0;
+        for (SignalMeasurement m : dao.getMeasurementsBySsidAfter(ssid, 0)) {
+            // Both lists are in id order; rows inserted since the update are not clustered yet
+            while (row < entry.joined.size() && entry.rowIds[row] < m.getId()) row++;
+            if (row == entry.joined.size()) break;
+            if (entry.rowIds[row] == m.getId() && entry.joined.get(row).current() == instance) members.add(m);
+        }
+        entry.membersOf = instance;
+        entry.membersLastId = entry.lastId;
+        entry.members = Collections.unmodifiableList(members);
+        return entry.members;
+    }
+
+    private Entry update(String ssid) {
+        Entry entry = entries.computeIfAbsent(ssid, key -> new Entry());
+        for (SignalMeasurement m : dao.getMeasurementsBySsidAfter(ssid, entry.lastId)) {
+            entry.add(m);
+        }
+        return entry;
+    }
+
+    /**
+     * Forget every clustering, for when measurements are deleted.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -1,21 +1,83 @@
 package com.example.wifisignaltracker;
 
 import android.content.Context;
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 /**
  * The Room database for the application.
  * Defines the entities and provides access to the DAOs.
  * exportSchema is set to true to allow exporting the database schema.
  */
-@Database(entities = {SignalMeasurement.class}, version = 1, exportSchema = true)
+@Database(entities = {SignalMeasurement.class}, version = 4, exportSchema = true)
 public abstract class AppDatabase extends RoomDatabase {
     public abstract SignalDao signalDao();
 
     private static volatile AppDatabase INSTANCE;
 
+    // Version 3 columns converted to the version 4 encoding. SurveyMerger reuses these for
+    // database files exported by older versions of the app.
+    static final String LEGACY_LATITUDE_E7_SQL = "CAST(ROUND(`latitude` * 10000000) AS INTEGER)";
+    static final String LEGACY_LONGITUDE_E7_SQL = "CAST(ROUND(`longitude` * 10000000) AS INTEGER)";
+    static final String LEGACY_SIGNAL_STRENGTH_SQL = "MAX(" + SignalMeasurement.MIN_STORED_RSSI + ", MIN(" +
+            SignalMeasurement.MAX_STORED_RSSI + ", `signalStrength`))";
+    static final String LEGACY_TIMESTAMP_SECONDS_SQL = "`timestamp` / 1000";
+
+    /**
+     * Version 2 adds indices for the SSID and viewport queries.
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_measurements_ssid` ON `measurements` (`ssid`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_measurements_latitude_longitude_ssid` " +
+                    "ON `measurements` (`latitude`, `longitude`, `ssid`)");
+        }
+    };
+
+    /**
+     * Version 3 extends the SSID index with the timestamp so survey merges can find duplicates cheaply.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("DROP INDEX IF EXISTS `index_measurements_ssid`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_measurements_ssid_timestamp` " +
+                    "ON `measurements` (`ssid`, `timestamp`)");
+        }
+    };
+
+    /**
+     * Version 4 switches to the compact encoding described on {@link SignalMeasurement}.
+     * SQLite cannot change column types in place, so the table is rebuilt. Freed pages are reused
+     * by new measurements; the file itself only shrinks after a VACUUM, which cannot run inside
+     * the migration's transaction.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `measurements_new` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `latitudeE7` INTEGER NOT NULL, " +
+                    "`longitudeE7` INTEGER NOT NULL, `signalStrength` INTEGER NOT NULL, " +
+                    "`timestampSeconds` INTEGER NOT NULL, `ssid` TEXT)");
+            database.execSQL("INSERT INTO `measurements_new` " +
+                    "(`id`, `latitudeE7`, `longitudeE7`, `signalStrength`, `timestampSeconds`, `ssid`) " +
+                    "SELECT `id`, " + LEGACY_LATITUDE_E7_SQL + ", " + LEGACY_LONGITUDE_E7_SQL + ", " +
+                    LEGACY_SIGNAL_STRENGTH_SQL + ", " + LEGACY_TIMESTAMP_SECONDS_SQL + ", `ssid` " +
+                    "FROM `measurements`");
+            database.execSQL("DROP TABLE `measurements`");
+            database.execSQL("ALTER TABLE `measurements_new` RENAME TO `measurements`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_measurements_ssid_timestampSeconds` " +
+                    "ON `measurements` (`ssid`, `timestampSeconds`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_measurements_latitudeE7_longitudeE7_ssid` " +
+                    "ON `measurements` (`latitudeE7`, `longitudeE7`, `ssid`)");
+        }
+    };
+
     /**
      * Singleton pattern to get the database instance.
      */
@@ -25,6 +87,7 @@ public abstract class AppDatabase extends RoomDatabase {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             AppDatabase.class, "wifi_signal_db")
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4)
                             .build();
                 }
             }
@@ -0,0 +1,72 @@
+package com.example.wifisignaltracker;
+
+import com.example.wifisignaltracker.core.SignalUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map icons keyed by cluster size bucket and signal tier, each rendered once and then reused
+ * across re-clusters. Sizes of ten and above are bucketed (shown as "10+", "20+", ...), so the
+ * atlas never holds more than {@link #MAX_ICONS} entries however large the survey grows.
+ * Not thread-safe; the cluster renderer only touches it from the main thread.
+ *
+ * @param <D> icon type, a BitmapDescriptor in the app
+ */
+public class IconAtlas<D> {
+
+    /**
+     * Renders the icon for a size bucket and signal tier. Bucket 1 is a single marker.
+     */
+    public interface Renderer<D> {
+        D render(int bucket, int tier);
+    }
+
+    // Same thresholds as the maps-utils default renderer
+    private static final int[] BUCKETS = {10, 20, 50, 100, 200, 500, 1000};
+    static final int MAX_ICONS = (BUCKETS[0] - 1 + BUCKETS.length) * SignalUtils.SIGNAL_TIER_COUNT;
+
+    private final Renderer<D> renderer;
+    private final Map<Integer, D> icons = new HashMap<>();
+
+    public IconAtlas(Renderer<D> renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * @param size number of items the icon stands for, 1 for a single marker
+     * @param tier signal tier from {@link SignalUtils#signalTier}
+     */
+    public D get(int size, int tier) {
+        int bucket = bucketFor(size);
+        int key = bucket * SignalUtils.SIGNAL_TIER_COUNT + tier;
+        D icon = icons.get(key);
+        if (icon == null) {
+            icon = renderer.render(bucket, tier);
+            icons.put(key, icon);
+        }
+        return icon;
+    }
+
+    /**
+     * @return the size itself below the first bucket, otherwise the largest bucket it reaches
+     */
+    public static int bucketFor(int size) {
+        if (size < BUCKETS[0]) return Math.max(1, size);
+        for (int i = BUCKETS.length - 1; i > 0; i--) {
+            if (size >= BUCKETS[i]) return BUCKETS[i];
+        }
+        return BUCKETS[0];
+    }
+
+    /**
+     * Text drawn on a cluster icon, e.g. "7" or "50+".
+     */
+    public static String label(int bucket) {
+        return bucket < BUCKETS[0] ? String.valueOf(bucket) : bucket + "+";
+    }
+
+    int size() {
+        return icons.size();
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.wifisignaltracker;
+
+import android.os.Trace;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Finds main-thread stutter around map refreshes.
+ * A Choreographer callback measures the interval between consecutive frames while the
+ * activity is visible. The frame period follows the display's refresh rate, read on every
+ * start, and a frame only counts as slow once it runs {@link #SLOW_FRAME_FACTOR} periods, so
+ * vsync jitter is not reported as jank. Each refresh applied on the UI thread is split into
+ * named stages, each wrapped in a systrace section; refreshes that take longer than a frame
+ * period are logged with their per-stage breakdown and item count. Everything is accumulated
+ * into a per-session report.
+ * <p>
+ * ClusterManager.cluster() only starts clustering; its markers are placed over the
+ * following frames, which show up as slow frames rather than in the refresh's stages.
+ * Main thread only.
+ */
+public class JankTracker implements Choreographer.FrameCallback {
+
+    private static final String TAG = "JankTracker";
+
+    static final double SLOW_FRAME_FACTOR = 1.5; // Frame intervals are noisy; one missed vsync is 2x
+    private static final float FALLBACK_REFRESH_RATE_HZ = 60f; // If the display reports nothing sensible
+    static final long FROZEN_FRAME_NANOS = 700_000_000L; // Android vitals' threshold for a frozen frame
+
+    // Refresh stages
+    public static final String STAGE_CLEAR = "clearMapVisuals";
+    public static final String STAGE_SUMMARY = "showSummaryView";
+    public static final String STAGE_DETAIL = "showDetailedView";
+    public static final String STAGE_CLUSTER = "cluster";
+
+    private final Choreographer choreographer;
+    private final LongSupplier nanoClock;
+    private final DoubleSupplier refreshRateHz;
+
+    private long framePeriodNanos;
+    private boolean running = false;
+    private long lastFrameTimeNanos = 0;
+
+    // Session totals
+    private long frames = 0;
+    private long slowFrames = 0;
+    private long frozenFrames = 0;
+    private long worstFrameNanos = 0;
+    private long refreshes = 0;
+    private long slowRefreshes = 0;
+    private long worstRefreshNanos = 0;
+    private final Map<String, Long> slowRefreshStageNanos = new LinkedHashMap<>();
+
+    public JankTracker(Display display) {
+        this(Choreographer.getInstance(), System::nanoTime, display::getRefreshRate);
+    }
+
+    JankTracker(Choreographer choreographer, LongSupplier nanoClock, DoubleSupplier refreshRateHz) {
+        this.choreographer = choreographer;
+        this.nanoClock = nanoClock;
+        this.refreshRateHz = refreshRateHz;
+        updateFramePeriod();
+    }
+
+    /**
+     * Start measuring frame intervals, e.g. when the activity resumes.
+     */
+    public void start() {
+        if (running) return;
+        running = true;
+        updateFramePeriod(); // The display may have switched rate while we were stopped
+        lastFrameTimeNanos = 0; // The gap while we were stopped is not a slow frame
+        choreographer.postFrameCallback(this);
+    }
+
+    public void stop() {
+        running = false;
+        choreographer.removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        if (lastFrameTimeNanos != 0) {
+            recordFrame(frameTimeNanos - lastFrameTimeNanos);
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+        choreographer.postFrameCallback(this);
+    }
+
+    private void updateFramePeriod() {
+        double rate = refreshRateHz.getAsDouble();
+        if (!(rate >= 1)) rate = FALLBACK_REFRESH_RATE_HZ;
+        framePeriodNanos = Math.round(1e9 / rate);
+    }
+
+    private long slowFrameNanos() {
+        return Math.round(framePeriodNanos * SLOW_FRAME_FACTOR);
+    }
+
+    void recordFrame(long intervalNanos) {
+        frames++;
+        if (intervalNanos > slowFrameNanos()) slowFrames++;
+        if (intervalNanos > FROZEN_FRAME_NANOS) frozenFrames++;
+        worstFrameNanos = Math.max(worstFrameNanos, intervalNanos);
+    }
+
+    /**
+     * Begin timing a refresh being applied on the UI thread.
+     * @param kind short label for logs, e.g. "summary"
+     */
+    public Refresh beginRefresh(String kind) {
+        return new Refresh(kind);
+    }
+
+    /**
+     * One refresh being applied. Stages run one after another and must not nest.
+     */
+    public final class Refresh {
+        private final String kind;
+        private final long startNanos;
+        private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+        private String currentStage;
+        private long stageStartNanos;
+
+        private Refresh(String kind) {
+            this.kind = kind;
+            this.startNanos = nanoClock.getAsLong();
+        }
+
+        public void beginStage(String stage) {
+            if (currentStage != null) endStage();
+            Trace.beginSection("refresh:" + stage);
+            currentStage = stage;
+            stageStartNanos = nanoClock.getAsLong();
+        }
+
+        public void endStage() {
+            if (currentStage == null) return;
+            long elapsed = nanoClock.getAsLong() - stageStartNanos;
+            Trace.endSection();
+            stageNanos.merge(currentStage, elapsed, Long::sum);
+            currentStage = null;
+        }
+
+        /**
+         * @param itemCount markers or measurements drawn, for the slow-refresh log
+         */
+        public void finish(int itemCount) {
+            endStage();
+            recordRefresh(kind, nanoClock.getAsLong() - startNanos, stageNanos, itemCount);
+        }
+    }
+
+    private void recordRefresh(String kind, long totalNanos, Map<String, Long> stageNanos, int itemCount) {
+        refreshes++;
+        worstRefreshNanos = Math.max(worstRefreshNanos, totalNanos);
+        if (totalNanos <= framePeriodNanos) return;
+
+        slowRefreshes++;
+        StringBuilder breakdown = new StringBuilder();
+        for (Map.Entry<String, Long> stage : stageNanos.entrySet()) {
+            slowRefreshStageNanos.merge(stage.getKey(), stage.getValue(), Long::sum);
+            if (breakdown.length() > 0) breakdown.append(", ");
+            breakdown.append(String.format(Locale.US, "%s %.1f ms", stage.getKey(), stage.getValue() / 1e6));
+        }
+        Log.w(TAG, String.format(Locale.US, "Slow %s refresh: %.1f ms for %d items [%s]",
+                kind, totalNanos / 1e6, itemCount, breakdown));
+    }
+
+    long getSlowFrames() {
+        return slowFrames;
+    }
+
+    long getSlowRefreshes() {
+        return slowRefreshes;
+    }
+
+    /**
+     * Human-readable summary of the session so far, suitable for exporting.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US,
+                "Frames: %d, slow (> %.1f ms): %d (%.1f%%), frozen: %d, worst: %.1f ms%n",
+                frames, slowFrameNanos() / 1e6, slowFrames,
+                frames == 0 ? 0.0 : 100.0 * slowFrames / frames, frozenFrames, worstFrameNanos / 1e6));
+        report.append(String.format(Locale.US, "Refreshes: %d, slow: %d, worst: %.1f ms%n",
+                refreshes, slowRefreshes, worstRefreshNanos / 1e6));
+        for (Map.Entry<String, Long> stage : slowRefreshStageNanos.entrySet()) {
+            report.append(String.format(Locale.US, "  %s: %.1f ms total in slow refreshes%n",
+                    stage.getKey(), stage.getValue() / 1e6));
+        }
+        return report.toString();
+    }
+}
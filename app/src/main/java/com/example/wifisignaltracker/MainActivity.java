@@ -7,12 +7,19 @@ import android.app.ActivityManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.graphics.Color;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.provider.OpenableColumns;
+import android.util.Log;
+import android.view.Display;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -22,6 +29,10 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 
+import com.example.wifisignaltracker.core.GeoPoint;
+import com.example.wifisignaltracker.core.InstanceClusterer;
+import com.example.wifisignaltracker.core.LocationEstimator;
+import com.example.wifisignaltracker.core.PathLossEstimator;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.maps.CameraUpdateFactory;
@@ -29,54 +40,85 @@ import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.maps.model.Polyline;
 import com.google.android.gms.maps.model.PolylineOptions;
 import com.google.maps.android.clustering.ClusterManager;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
  * MainActivity handles UI and visualizes WiFi signal data.
  * Supports a "Suspected Location" view (default) and a "Detailed View" for individual SSIDs.
- * Uses an improved Weighted Centroid algorithm to estimate broadcast location.
+ * Estimates broadcast locations with a weighted centroid (summary) and a path-loss fit (detail).
  */
 import com.google.maps.android.clustering.Cluster;
 
 /**
  * MainActivity handles UI and visualizes WiFi signal data.
  * Supports a "Suspected Location" view (default) and a "Detailed View" for individual SSIDs.
- * Uses an improved Weighted Centroid algorithm to estimate broadcast location.
+ * Estimates broadcast locations with a weighted centroid (summary) and a path-loss fit (detail).
  */
 public class MainActivity extends AppCompatActivity implements OnMapReadyCallback, GoogleMap.OnMarkerClickListener, ClusterManager.OnClusterItemClickListener<WifiClusterItem>, ClusterManager.OnClusterClickListener<WifiClusterItem> {
 
+    private static final String TAG = "MainActivity";
+    private static final String SNAPSHOT_FILE_NAME = "summary_snapshot.bin";
+    private static final String JANK_REPORT_FILE_NAME = "jank_report.txt";
+
     private GoogleMap mMap;
     private ClusterManager<WifiClusterItem> mClusterManager;
     private FusedLocationProviderClient fusedLocationClient;
     
     private Button startButton;
+    private CheckBox passiveScanCheckBox;
+    private CheckBox scanCoupledCheckBox;
     private TextView signalInfoText;
+    private TextView locationInfoText;
 
     // Database components
     private AppDatabase db;
     private ExecutorService databaseExecutor;
+    private RefreshScheduler refreshScheduler;
+    // Detailed view estimate; the summary uses the weighted centroid computed in SQLite
+    private final LocationEstimator locationEstimator = new PathLossEstimator();
+    private ApInstanceCache apInstances;
     
     private final List<Marker> markers = new ArrayList<>();
     private final List<Polyline> polylines = new ArrayList<>();
     
     private String selectedSsid = null; // State: null = summary view, non-null = detailed view
+    // With selectedSsid: the access point shown when the SSID was split, see ApInstanceCache
+    private int selectedInstanceId = WifiClusterItem.NO_INSTANCE;
 
     private final Handler mapUpdateHandler = new Handler(Looper.getMainLooper());
     private Runnable mapUpdateRunnable;
 
+    // Cold start: the last summary is drawn from a snapshot until the first live refresh lands
+    private File snapshotFile;
+    private SummarySnapshot pendingSnapshot;
+    // What the snapshot file holds, so unchanged summaries are not rewritten. Guarded by itself.
+    private final Object snapshotLock = new Object();
+    private SummarySnapshot savedSnapshot;
+    private boolean liveSummaryShown = false;
+
+    private JankTracker jankTracker;
+    private String exportedJankReport; // Main thread only
+
     private final ActivityResultLauncher<String[]> requestPermissionLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestMultiplePermissions(), result -> {
                 if (Boolean.TRUE.equals(result.getOrDefault(Manifest.permission.ACCESS_FINE_LOCATION, false))) {
@@ -85,24 +127,43 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
                 }
             });
 
+    private final ActivityResultLauncher<String[]> mergeSurveyLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenMultipleDocuments(), uris -> {
+                if (!uris.isEmpty()) mergeSurvey(uris);
+            });
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        @SuppressWarnings("deprecation")
+        Display display = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? getDisplay() : getWindowManager().getDefaultDisplay();
+        jankTracker = new JankTracker(display);
+
         // Initialize Database and Executor
         db = AppDatabase.getDatabase(this);
+        apInstances = new ApInstanceCache(db.signalDao());
         databaseExecutor = Executors.newSingleThreadExecutor();
+        refreshScheduler = new RefreshScheduler(databaseExecutor, this::runOnUiThread);
+        snapshotFile = new File(getFilesDir(), SNAPSHOT_FILE_NAME);
+        loadSnapshot();
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
 
         // Bind UI components
         startButton = findViewById(R.id.start_button);
+        passiveScanCheckBox = findViewById(R.id.passive_scan_checkbox);
+        scanCoupledCheckBox = findViewById(R.id.scan_coupled_checkbox);
         signalInfoText = findViewById(R.id.signal_info_text);
+        locationInfoText = findViewById(R.id.location_info_text);
         Button clearButton = findViewById(R.id.clear_button);
+        Button mergeButton = findViewById(R.id.merge_button);
 
         // Initialize button actions
         startButton.setOnClickListener(v -> toggleService());
         clearButton.setOnClickListener(v -> clearAllData());
+        mergeButton.setOnClickListener(v -> mergeSurveyLauncher.launch(new String[] {"*/*"}));
 
         // Initialize Map
         SupportMapFragment mapFragment = (SupportMapFragment) getSupportFragmentManager()
@@ -120,8 +181,12 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
         if (TrackingService.isRunning()) {
             stopService(serviceIntent);
             stopMapUpdates(); // Stop refreshing when service is stopped
+            showFixCounters();
             Toast.makeText(this, "Tracking stopped", Toast.LENGTH_SHORT).show();
         } else {
+            // Either wake the GPS only around scans or track continuously
+            serviceIntent.putExtra(TrackingService.EXTRA_SCAN_COUPLED_LOCATION, scanCoupledCheckBox.isChecked());
+            serviceIntent.putExtra(TrackingService.EXTRA_PASSIVE_SCANS, passiveScanCheckBox.isChecked());
             ContextCompat.startForegroundService(this, serviceIntent);
             if (mMap != null) {
                 startMapUpdates(); // Start refreshing when service starts and map is ready
@@ -137,6 +202,16 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
         } else {
             startButton.setText(R.string.start_tracking);
         }
+        // The mode is fixed for the lifetime of a tracking session
+        passiveScanCheckBox.setEnabled(!TrackingService.isRunning());
+        scanCoupledCheckBox.setEnabled(!TrackingService.isRunning());
+    }
+
+    /**
+     * Show what the session's location updates cost against what they were used for.
+     */
+    private void showFixCounters() {
+        locationInfoText.setText(String.format(Locale.getDefault(), "Location: %s", TrackingService.getFixCounters()));
     }
 
     @Override
@@ -145,6 +220,7 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
 
         // Initialize ClusterManager
         mClusterManager = new ClusterManager<>(this, mMap);
+        mClusterManager.setRenderer(new WifiClusterRenderer(this, mMap, mClusterManager));
         mClusterManager.setOnClusterItemClickListener(this);
         mClusterManager.setOnClusterClickListener(this);
 
@@ -169,6 +245,7 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
         mMap.setOnMapClickListener(latLng -> {
             if (selectedSsid != null) {
                 selectedSsid = null;
+                selectedInstanceId = WifiClusterItem.NO_INSTANCE;
                 refreshMarkersFromDatabase();
             }
         });
@@ -177,10 +254,79 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
                 == PackageManager.PERMISSION_GRANTED) {
             enableMyLocationUI();
         }
+        // Draw the last known summary right away; the live refresh below reconciles it
+        showSnapshotIfReady();
+
         // Initial data load after the map has finished loading and bounds are available
         mMap.setOnMapLoadedCallback(() -> refreshMarkersFromDatabase());
     }
 
+    /**
+     * Read the snapshot in the background while the map initializes.
+     * It's the first task on the executor, so it finishes before any refresh can run.
+     */
+    private void loadSnapshot() {
+        databaseExecutor.execute(() -> {
+            SummarySnapshot snapshot;
+            try {
+                snapshot = SummarySnapshot.readFrom(snapshotFile);
+            } catch (IOException e) {
+                Log.w(TAG, "Ignoring unreadable summary snapshot", e);
+                snapshot = null;
+            }
+            if (snapshot == null) return;
+            synchronized (snapshotLock) {
+                savedSnapshot = snapshot;
+            }
+
+            final SummarySnapshot finalSnapshot = snapshot;
+            runOnUiThread(() -> {
+                pendingSnapshot = finalSnapshot;
+                showSnapshotIfReady();
+            });
+        });
+    }
+
+    private void showSnapshotIfReady() {
+        if (mMap == null || pendingSnapshot == null) return;
+        SummarySnapshot snapshot = pendingSnapshot;
+        pendingSnapshot = null;
+
+        // Live data or a selection already won the race; the snapshot is obsolete
+        if (liveSummaryShown || selectedSsid != null) return;
+
+        mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(
+                new LatLng(snapshot.cameraLatitude, snapshot.cameraLongitude), snapshot.cameraZoom));
+        JankTracker.Refresh trace = jankTracker.beginRefresh("snapshot");
+        trace.beginStage(JankTracker.STAGE_CLEAR);
+        mClusterManager.clearItems();
+        trace.beginStage(JankTracker.STAGE_SUMMARY);
+        showSummaryView(snapshot.items);
+        trace.beginStage(JankTracker.STAGE_CLUSTER);
+        mClusterManager.cluster();
+        trace.finish(snapshot.items.size());
+    }
+
+    /**
+     * Persist the summary if it differs from the stored one. Holding the lock across the
+     * generation check and the write keeps a refresh superseded by clearAllData from writing
+     * the cleared data back.
+     */
+    private void saveSnapshot(RefreshScheduler.Generation generation, CameraPosition camera,
+                              List<WifiClusterItem> items) {
+        SummarySnapshot snapshot = new SummarySnapshot(
+                camera.target.latitude, camera.target.longitude, camera.zoom, items);
+        synchronized (snapshotLock) {
+            if (!generation.isCurrent() || snapshot.equals(savedSnapshot)) return;
+            try {
+                snapshot.writeTo(snapshotFile);
+                savedSnapshot = snapshot;
+            } catch (IOException e) {
+                Log.w(TAG, "Could not save summary snapshot", e);
+            }
+        }
+    }
+
     private void startMapUpdates() {
         if (mapUpdateRunnable != null) return; // Already running
 
@@ -188,6 +334,7 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
             @Override
             public void run() {
                 refreshMarkersFromDatabase();
+                showFixCounters();
                 mapUpdateHandler.postDelayed(this, 5000); // Poll every 5 seconds
             }
         };
@@ -204,92 +351,150 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
     private void refreshMarkersFromDatabase() {
         // Determine the bounds *before* going to the background thread
         // This must be done on the main thread
-        final com.google.android.gms.maps.model.LatLngBounds bounds;
+        final LatLngBounds bounds;
+        final CameraPosition camera;
         if (mMap != null && selectedSsid == null) {
             bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
+            camera = mMap.getCameraPosition();
         } else {
             bounds = null;
+            camera = null;
         }
 
-        databaseExecutor.execute(() -> {
-            if (selectedSsid == null) {
+        // Capture the view state now so a queued refresh can't observe a later selection
+        final String ssid = selectedSsid;
+        final int instanceId = selectedInstanceId;
+
+        refreshScheduler.request(generation -> {
+            if (ssid == null) {
                 // Summary View: Load based on bounds
-                if (bounds == null) return;
+                if (bounds == null) return null;
                 
-                List<String> visibleSsids = db.signalDao().getUniqueSsidsInBounds(
+                // SQLite reduces each visible SSID to its weighted centroid, one row per network
+                List<SsidCentroid> centroids = db.signalDao().getCentroidsInBounds(
                         bounds.southwest.latitude, bounds.northeast.latitude,
                         bounds.southwest.longitude, bounds.northeast.longitude);
 
-                List<SignalMeasurement> relevantMeasurements = new ArrayList<>();
-                if (visibleSsids != null && !visibleSsids.isEmpty()) {
-                    // Batch queries to avoid SQLite limits (approx 999 variables per query)
-                    int batchSize = 900;
-                    for (int i = 0; i < visibleSsids.size(); i += batchSize) {
-                        List<String> batch = visibleSsids.subList(i, Math.min(i + batchSize, visibleSsids.size()));
-                        List<SignalMeasurement> batchMeasurements = db.signalDao().getMeasurementsForSsids(batch);
-                        if (batchMeasurements != null) {
-                            relevantMeasurements.addAll(batchMeasurements);
-                        }
-                    }
-                }
+                if (!generation.isCurrent()) return null;
+                final List<WifiClusterItem> items = buildSummaryItems(centroids, bounds);
+                saveSnapshot(generation, camera, items);
 
-                final List<SignalMeasurement> finalMeasurements = relevantMeasurements;
-                runOnUiThread(() -> {
+                return () -> {
+                    JankTracker.Refresh trace = jankTracker.beginRefresh("summary");
+                    liveSummaryShown = true;
+                    trace.beginStage(JankTracker.STAGE_CLEAR);
                     mClusterManager.clearItems(); // Clear previous clusters
                     clearMapVisuals(); // Clear any manual markers just in case
                     // Switch listener to ClusterManager for Summary View
                     mMap.setOnMarkerClickListener(mClusterManager);
-                    showSummaryView(finalMeasurements);
+                    trace.beginStage(JankTracker.STAGE_SUMMARY);
+                    showSummaryView(items);
+                    trace.beginStage(JankTracker.STAGE_CLUSTER);
                     mClusterManager.cluster(); // Force re-clustering
-                });
+                    trace.finish(items.size());
+                };
             } else {
-                // Detailed View: Load specifically for the selected SSID
-                // We use existing getMeasurementsBySsid or reuse the bulk fetch if we had it
-                List<SignalMeasurement> measurements = db.signalDao().getMeasurementsBySsid(selectedSsid);
-                runOnUiThread(() -> {
+                // Detailed View: Load specifically for the selected SSID, or the selected
+                // access point when the SSID was split into several
+                List<SignalMeasurement> measurements;
+                int shownInstanceId = instanceId;
+                if (instanceId == WifiClusterItem.NO_INSTANCE) {
+                    measurements = db.signalDao().getMeasurementsBySsid(ssid);
+                } else {
+                    // Never widen to the whole SSID: an instance that is gone drops back to the summary
+                    measurements = apInstances.measurementsOf(ssid, instanceId);
+                    if (measurements == null) measurements = Collections.emptyList();
+                    // Follow the instance into the one it was merged with, if it was
+                    if (!measurements.isEmpty()) shownInstanceId = measurements.get(0).getId();
+                }
+                if (!generation.isCurrent()) return null;
+                // The fit is iterative, so keep it off the UI thread. Instances get their own
+                // warm-start entry so they never pull each other's fit.
+                String estimateKey = shownInstanceId == WifiClusterItem.NO_INSTANCE ? ssid : ssid + "#" + shownInstanceId;
+                GeoPoint estimate = measurements.isEmpty() ? null : locationEstimator.estimate(estimateKey, measurements);
+                final LatLng suspectedLoc = estimate == null ? null : new LatLng(estimate.latitude, estimate.longitude);
+                final List<SignalMeasurement> detail = measurements;
+                final int resolvedInstanceId = shownInstanceId;
+                return () -> {
+                    JankTracker.Refresh trace = jankTracker.beginRefresh("detail");
+                    if (ssid.equals(selectedSsid) && selectedInstanceId == instanceId) {
+                        selectedInstanceId = resolvedInstanceId;
+                    }
+                    trace.beginStage(JankTracker.STAGE_CLEAR);
                     mClusterManager.clearItems();
-                    mClusterManager.cluster(); // Clear clusters visually
                     clearMapVisuals();
                     // Switch listener to 'this' for Detailed View (manual markers)
                     mMap.setOnMarkerClickListener(MainActivity.this);
-                    showDetailedView(measurements);
-                });
+                    trace.beginStage(JankTracker.STAGE_DETAIL);
+                    showDetailedView(detail, suspectedLoc);
+                    trace.beginStage(JankTracker.STAGE_CLUSTER);
+                    mClusterManager.cluster(); // Clear clusters visually
+                    trace.finish(detail.size());
+                };
             }
         });
     }
 
-    private void showSummaryView(List<SignalMeasurement> allMeasurements) {
-        Map<String, List<SignalMeasurement>> grouped = groupBySsid(allMeasurements);
-        
-        for (Map.Entry<String, List<SignalMeasurement>> entry : grouped.entrySet()) {
-            String ssid = entry.getKey();
-            LatLng suspectedLoc = SignalUtils.calculateWeightedCentroid(entry.getValue());
-            
-            // Add to ClusterManager instead of direct map markers
-            WifiClusterItem item = new WifiClusterItem(
-                    suspectedLoc.latitude, suspectedLoc.longitude,
-                    "Suspected: " + ssid, ssid
-            );
-            mClusterManager.addItem(item);
+    /**
+     * One suspected location per SSID, or per access point for SSIDs spread wide enough to be
+     * shared by several. Runs on the background thread.
+     */
+    private List<WifiClusterItem> buildSummaryItems(List<SsidCentroid> centroids, LatLngBounds bounds) {
+        List<WifiClusterItem> items = new ArrayList<>(centroids.size());
+        for (SsidCentroid centroid : centroids) {
+            List<InstanceClusterer<SignalMeasurement>.Instance> instances = ApInstanceCache.mightSpanSeveralAps(centroid)
+                    ? apInstances.instancesOf(centroid.ssid) : null;
+            if (instances == null || instances.size() <= 1) {
+                items.add(WifiClusterItem.suspectedLocation(
+                        centroid.ssid, centroid.latitude, centroid.longitude, centroid.maxRssi));
+                continue;
+            }
+
+            for (int i = 0; i < instances.size(); i++) {
+                InstanceClusterer<SignalMeasurement>.Instance instance = instances.get(i);
+                if (!inView(instance, bounds)) continue;
+                GeoPoint location = instance.getCentroid();
+                items.add(WifiClusterItem.apInstance(centroid.ssid, instance.getFirst().getId(), i + 1,
+                        location.latitude, location.longitude, instance.getMaxRssi()));
+            }
         }
+        return items;
+    }
+
+    /**
+     * The bounds test the SQL applies to whole SSIDs, on the instance's bounding box.
+     */
+    private static boolean inView(InstanceClusterer<SignalMeasurement>.Instance instance, LatLngBounds bounds) {
+        double south = bounds.southwest.latitude;
+        double north = bounds.northeast.latitude;
+        double west = bounds.southwest.longitude;
+        double east = bounds.northeast.longitude;
+        if (west <= east) return instance.intersects(south, north, west, east);
+        // The view spans the antimeridian
+        return instance.intersects(south, north, west, 180) || instance.intersects(south, north, -180, east);
+    }
+
+    private void showSummaryView(List<WifiClusterItem> items) {
+        // Add to ClusterManager instead of direct map markers
+        mClusterManager.addItems(items);
         
-        signalInfoText.setText(String.format(Locale.getDefault(), "Viewing %d unique networks", grouped.size()));
+        signalInfoText.setText(String.format(Locale.getDefault(), "Viewing %d unique networks", items.size()));
     }
 
-    private void showDetailedView(List<SignalMeasurement> allMeasurements) {
+    private void showDetailedView(List<SignalMeasurement> allMeasurements, LatLng suspectedLoc) {
         List<SignalMeasurement> relevant = new ArrayList<>();
         for (SignalMeasurement m : allMeasurements) {
             if (m.getSsid().equals(selectedSsid)) relevant.add(m);
         }
 
-        if (relevant.isEmpty()) {
+        if (relevant.isEmpty() || suspectedLoc == null) {
+            // The network is gone (e.g. data was cleared); fall back to the summary
             selectedSsid = null;
-            showSummaryView(allMeasurements);
+            selectedInstanceId = WifiClusterItem.NO_INSTANCE;
+            refreshMarkersFromDatabase();
             return;
         }
 
-        LatLng suspectedLoc = SignalUtils.calculateWeightedCentroid(relevant);
-
         // Add supporting measurement markers
         for (SignalMeasurement m : relevant) {
             Marker marker = mMap.addMarker(new MarkerOptions()
@@ -323,15 +528,6 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
         signalInfoText.setText(String.format(Locale.getDefault(), "Detail: %s (%d points)", selectedSsid, relevant.size()));
     }
 
-    private Map<String, List<SignalMeasurement>> groupBySsid(List<SignalMeasurement> measurements) {
-        Map<String, List<SignalMeasurement>> map = new HashMap<>();
-        for (SignalMeasurement m : measurements) {
-            if (!map.containsKey(m.getSsid())) map.put(m.getSsid(), new ArrayList<>());
-            map.get(m.getSsid()).add(m);
-        }
-        return map;
-    }
-
     @Override
     public boolean onMarkerClick(@NonNull Marker marker) {
         // This listener is only active in Detailed View.
@@ -347,6 +543,7 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
         // switch to that SSID's detailed view.
         if (ssid != null) {
             selectedSsid = ssid;
+            selectedInstanceId = WifiClusterItem.NO_INSTANCE;
             refreshMarkersFromDatabase();
             mMap.animateCamera(CameraUpdateFactory.newLatLng(marker.getPosition()));
             return true;
@@ -359,17 +556,18 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
     @Override
     public boolean onClusterClick(Cluster<WifiClusterItem> cluster) {
         // Instead of zooming, show a dialog with the list of SSIDs in the cluster
-        final List<String> ssids = new ArrayList<>();
-        for (WifiClusterItem item : cluster.getItems()) {
-            ssids.add(item.getSnippet());
+        final List<WifiClusterItem> clusterItems = new ArrayList<>(cluster.getItems());
+        final CharSequence[] names = new CharSequence[clusterItems.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = clusterItems.get(i).getDisplayName();
         }
 
-        final CharSequence[] items = ssids.toArray(new CharSequence[0]);
-
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Select a WiFi Network from this cluster");
-        builder.setItems(items, (dialog, which) -> {
-            selectedSsid = (String) items[which];
+        builder.setItems(names, (dialog, which) -> {
+            WifiClusterItem item = clusterItems.get(which);
+            selectedSsid = item.getSnippet();
+            selectedInstanceId = item.getInstanceId();
             refreshMarkersFromDatabase();
             // We can also move the camera to the selected item's position, but cluster position is fine
             mMap.animateCamera(CameraUpdateFactory.newLatLng(cluster.getPosition()));
@@ -384,6 +582,7 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
         String ssid = item.getSnippet(); // Use snippet which holds the raw SSID
         if (ssid != null) {
             selectedSsid = ssid;
+            selectedInstanceId = item.getInstanceId();
             refreshMarkersFromDatabase();
             mMap.animateCamera(CameraUpdateFactory.newLatLng(item.getPosition()));
             return true;
@@ -431,17 +630,83 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
 
     private void clearAllData() {
         selectedSsid = null;
+        selectedInstanceId = WifiClusterItem.NO_INSTANCE;
         clearMapVisuals();
+        // Refreshes that read the data being deleted must neither draw nor save it
+        refreshScheduler.cancelAll();
         databaseExecutor.execute(() -> {
             db.signalDao().deleteAll();
+            locationEstimator.reset();
+            apInstances.clear();
+            synchronized (snapshotLock) {
+                //noinspection ResultOfMethodCallIgnored
+                snapshotFile.delete();
+                savedSnapshot = null;
+            }
             runOnUiThread(() -> Toast.makeText(this, "Database cleared", Toast.LENGTH_SHORT).show());
         });
     }
 
+    /**
+     * Merge another device's wifi_signal_db into ours.
+     * The documents are copied to the cache first because SQLite can only attach real files.
+     * Picking the database's -wal file along with it brings in rows not yet checkpointed.
+     */
+    private void mergeSurvey(List<Uri> uris) {
+        Toast.makeText(this, "Merging survey...", Toast.LENGTH_SHORT).show();
+        databaseExecutor.execute(() -> {
+            File sourceFile = new File(getCacheDir(), "merge_source.db");
+            String message;
+            try {
+                for (Uri uri : uris) {
+                    String name = displayNameOf(uri);
+                    if (name != null && name.endsWith("-shm")) continue; // Rebuilt from the -wal
+                    boolean walFile = name != null && name.endsWith("-wal");
+                    copyToFile(uri, walFile ? new File(sourceFile.getPath() + "-wal") : sourceFile);
+                }
+                SurveyMerger.Result result = new SurveyMerger(db).merge(sourceFile);
+                message = String.format(Locale.getDefault(), "Merged %d measurements, skipped %d duplicates",
+                        result.merged, result.skipped);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Survey merge failed", e);
+                message = "Merge failed: " + e.getMessage();
+            } finally {
+                // Also removes the -wal and -shm files
+                SQLiteDatabase.deleteDatabase(sourceFile);
+            }
+
+            final String finalMessage = message;
+            runOnUiThread(() -> {
+                Toast.makeText(this, finalMessage, Toast.LENGTH_LONG).show();
+                refreshMarkersFromDatabase();
+            });
+        });
+    }
+
+    private String displayNameOf(Uri uri) {
+        try (Cursor cursor = getContentResolver().query(uri,
+                new String[] {OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            return cursor != null && cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    private void copyToFile(Uri uri, File file) throws IOException {
+        try (InputStream in = getContentResolver().openInputStream(uri);
+             OutputStream out = new FileOutputStream(file)) {
+            if (in == null) throw new IOException("Cannot open " + uri);
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
         updateButtonState();
+        jankTracker.start();
         if (TrackingService.isRunning()) {
             startMapUpdates(); // Re-start updates if the service is running
         }
@@ -451,6 +716,36 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
     protected void onPause() {
         super.onPause();
         stopMapUpdates(); // Always stop updates when the app is paused
+        jankTracker.stop();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        exportJankReport();
+    }
+
+    /**
+     * Write the session's frame timing summary to app-specific external storage,
+     * where it can be pulled without root, e.g. {@code adb pull /sdcard/Android/data/<package>/files/jank_report.txt}.
+     * Runs when the activity leaves the screen, and only writes when the report changed since
+     * the last export.
+     */
+    private void exportJankReport() {
+        final String report = jankTracker.report();
+        if (report.equals(exportedJankReport)) return;
+        final File dir = getExternalFilesDir(null);
+        Log.i(TAG, "Session frame timing:\n" + report);
+        if (dir == null || databaseExecutor.isShutdown()) return;
+        exportedJankReport = report;
+
+        databaseExecutor.execute(() -> {
+            try (OutputStream out = new FileOutputStream(new File(dir, JANK_REPORT_FILE_NAME))) {
+                out.write(report.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Log.w(TAG, "Could not export jank report", e);
+            }
+        });
     }
 
     @Override
@@ -460,6 +755,10 @@ public class MainActivity extends AppCompatActivity implements OnMapReadyCallbac
         if (mapUpdateHandler != null && mapUpdateRunnable != null) {
             mapUpdateHandler.removeCallbacks(mapUpdateRunnable);
         }
+        // Drop queued refreshes so nothing is posted to a destroyed activity
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdown();
+        }
         // Shutdown database executor
         if (databaseExecutor != null && !databaseExecutor.isShutdown()) {
             databaseExecutor.shutdown();
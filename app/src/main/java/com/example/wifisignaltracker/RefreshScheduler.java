@@ -0,0 +1,135 @@
+package com.example.wifisignaltracker;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs map refreshes on a background executor while coalescing bursts of requests.
+ * At most one refresh runs at a time and at most one waits behind it; a newer request
+ * replaces the waiting one. Every request bumps a generation counter, so superseded work
+ * is dropped before it queries the database and late results are discarded before they
+ * reach the UI thread.
+ */
+public class RefreshScheduler {
+
+    /**
+     * A unit of refresh work.
+     */
+    public interface Refresh {
+        /**
+         * Loads data on the background executor.
+         * Long-running implementations should check {@link Generation#isCurrent()} between steps
+         * and bail out early once it returns false.
+         *
+         * @return the UI update to apply, or null if there is nothing to show
+         */
+        Runnable load(Generation generation);
+    }
+
+    /**
+     * Identifies one refresh request. It stops being current as soon as a newer request arrives.
+     */
+    public final class Generation {
+        private final long value;
+
+        private Generation(long value) {
+            this.value = value;
+        }
+
+        public boolean isCurrent() {
+            return !shutdown && value == latestGeneration.get();
+        }
+    }
+
+    private final Executor backgroundExecutor;
+    private final Executor uiExecutor;
+    private final AtomicLong latestGeneration = new AtomicLong();
+
+    // Guarded by 'this'
+    private boolean running = false;
+    private Refresh pendingRefresh;
+    private Generation pendingGeneration;
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param backgroundExecutor executor used for database work
+     * @param uiExecutor executor that posts to the main thread
+     */
+    public RefreshScheduler(Executor backgroundExecutor, Executor uiExecutor) {
+        this.backgroundExecutor = backgroundExecutor;
+        this.uiExecutor = uiExecutor;
+    }
+
+    /**
+     * Schedules a refresh, superseding any refresh that is running or waiting.
+     */
+    public void request(Refresh refresh) {
+        Generation generation = new Generation(latestGeneration.incrementAndGet());
+        synchronized (this) {
+            if (shutdown) return;
+            if (running) {
+                // Replace whatever was waiting; it is already stale.
+                pendingRefresh = refresh;
+                pendingGeneration = generation;
+                return;
+            }
+            running = true;
+        }
+        submit(refresh, generation);
+    }
+
+    /**
+     * Invalidates every outstanding refresh without scheduling a new one.
+     */
+    public void cancelAll() {
+        latestGeneration.incrementAndGet();
+        synchronized (this) {
+            pendingRefresh = null;
+            pendingGeneration = null;
+        }
+    }
+
+    /**
+     * Stops accepting requests and discards any results still in flight.
+     */
+    public void shutdown() {
+        shutdown = true;
+        cancelAll();
+    }
+
+    private void submit(Refresh refresh, Generation generation) {
+        backgroundExecutor.execute(() -> {
+            try {
+                // Skip the query entirely if a newer request arrived while we were queued
+                if (!generation.isCurrent()) return;
+
+                Runnable uiUpdate = refresh.load(generation);
+                if (uiUpdate == null || !generation.isCurrent()) return;
+
+                uiExecutor.execute(() -> {
+                    // Check again on the UI thread; a newer refresh may have started meanwhile
+                    if (generation.isCurrent()) uiUpdate.run();
+                });
+            } finally {
+                runPending();
+            }
+        });
+    }
+
+    private void runPending() {
+        Refresh next;
+        Generation nextGeneration;
+        synchronized (this) {
+            next = pendingRefresh;
+            nextGeneration = pendingGeneration;
+            pendingRefresh = null;
+            pendingGeneration = null;
+            if (next == null || shutdown) {
+                running = false;
+                return;
+            }
+        }
+        submit(next, nextGeneration);
+    }
+}
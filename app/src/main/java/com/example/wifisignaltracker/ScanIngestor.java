@@ -0,0 +1,87 @@
+package com.example.wifisignaltracker;
+
+import android.net.wifi.ScanResult;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Turns a batch of WiFi scan results into measurements and queues them for insertion.
+ * TrackingService and the ingestion load tests both go through this class, so the
+ * simulator exercises exactly the same path as a real scan.
+ * <p>
+ * getScanResults() returns the OS cache, which can hold results from earlier scans, and the
+ * same scan may be delivered more than once. Each access point is therefore remembered with the
+ * timestamp of the last result stored for it, and a result is only stored if it is newer.
+ * Not thread-safe; call from a single thread.
+ */
+public class ScanIngestor {
+
+    static final int MIN_SIGNAL_STRENGTH_DBM = -90;
+    private static final int MAX_TRACKED_ACCESS_POINTS = 4096;
+
+    private final SignalDao signalDao;
+    private final Executor databaseExecutor;
+
+    // Access point -> ScanResult.timestamp of the last stored result, least recently seen first
+    private final Map<String, Long> lastStoredTimestamps =
+            new LinkedHashMap<String, Long>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > MAX_TRACKED_ACCESS_POINTS;
+                }
+            };
+
+    public ScanIngestor(SignalDao signalDao, Executor databaseExecutor) {
+        this.signalDao = signalDao;
+        this.databaseExecutor = databaseExecutor;
+    }
+
+    /**
+     * Convert the results observed at the given position and queue them for insertion.
+     * @return the number of measurements queued
+     */
+    public int ingest(List<ScanResult> results, double latitude, double longitude) {
+        List<SignalMeasurement> newMeasurements = toMeasurements(dropRepeatedResults(results), latitude, longitude);
+        if (!newMeasurements.isEmpty()) {
+            databaseExecutor.execute(() -> signalDao.insertAll(newMeasurements));
+        }
+        return newMeasurements.size();
+    }
+
+    /**
+     * Keep only results observed after the last stored result for the same access point.
+     */
+    private List<ScanResult> dropRepeatedResults(List<ScanResult> results) {
+        List<ScanResult> fresh = new ArrayList<>();
+        if (results == null) return fresh;
+
+        for (ScanResult result : results) {
+            String key = result.BSSID != null ? result.BSSID : result.SSID;
+            Long lastTimestamp = lastStoredTimestamps.get(key);
+            if (lastTimestamp != null && result.timestamp <= lastTimestamp) continue;
+
+            lastStoredTimestamps.put(key, result.timestamp);
+            fresh.add(result);
+        }
+        return fresh;
+    }
+
+    /**
+     * Filter out hidden networks and weak signals, keeping one measurement per remaining result.
+     */
+    static List<SignalMeasurement> toMeasurements(List<ScanResult> results, double latitude, double longitude) {
+        List<SignalMeasurement> measurements = new ArrayList<>();
+        if (results == null) return measurements;
+
+        for (ScanResult result : results) {
+            if (result.SSID == null || result.SSID.isEmpty() || result.level < MIN_SIGNAL_STRENGTH_DBM) continue;
+
+            measurements.add(new SignalMeasurement(latitude, longitude, result.level, result.SSID));
+        }
+        return measurements;
+    }
+}
@@ -3,6 +3,9 @@ package com.example.wifisignaltracker;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.Query;
+
+import com.example.wifisignaltracker.core.SignalUtils;
+
 import java.util.List;
 
 /**
@@ -11,28 +14,80 @@ import java.util.List;
  */
 @Dao
 public interface SignalDao {
+    // Hot-path queries used by the map refresh. Kept as constants so the query-plan tests
+    // check exactly the SQL Room runs.
+    String MEASUREMENTS_BY_SSID_QUERY = "SELECT * FROM measurements WHERE ssid = :ssid";
+
+    // Positions are stored as E7 integers (see SignalMeasurement); scale the bounds rather than
+    // the columns so the (latitudeE7, longitudeE7, ssid) index still applies
+    String E7_SQL = "10000000";
+    String SSIDS_IN_BOUNDS_QUERY =
+            "SELECT DISTINCT ssid FROM measurements " +
+            "WHERE latitudeE7 BETWEEN :minLat * " + E7_SQL + " AND :maxLat * " + E7_SQL + " AND " +
+            "((:minLng <= :maxLng AND longitudeE7 BETWEEN :minLng * " + E7_SQL + " AND :maxLng * " + E7_SQL + ") OR " +
+            " (:minLng > :maxLng AND (longitudeE7 >= :minLng * " + E7_SQL + " OR longitudeE7 <= :maxLng * " + E7_SQL + ")))";
+
+    // Rows added since an earlier read, for ApInstanceCache's incremental updates
+    String MEASUREMENTS_BY_SSID_AFTER_QUERY =
+            "SELECT * FROM measurements WHERE ssid = :ssid AND id > :afterId ORDER BY id";
+
+    // SignalUtils weight, (WEIGHT_OFFSET + rssi) ^ WEIGHT_EXPONENT, with the exponent of 6 expanded
+    // into multiplications. Every factor is an integer-valued double, so the product is exact and
+    // equals Math.pow.
+    String WEIGHT_BASE_SQL = "MAX(1, " + SignalUtils.WEIGHT_OFFSET + " + m.signalStrength)";
+    String WEIGHT_SQL = WEIGHT_BASE_SQL + " * " + WEIGHT_BASE_SQL + " * " + WEIGHT_BASE_SQL + " * " +
+            WEIGHT_BASE_SQL + " * " + WEIGHT_BASE_SQL + " * " + WEIGHT_BASE_SQL;
+
+    /**
+     * SignalUtils.calculateWeightedCentroid pushed down into SQLite, returning one row per SSID
+     * seen in the bounds. The first pass finds each SSID's strongest signal; the second sums the
+     * weighted positions of measurements within the filter threshold of it, in id order.
+     * The first pass also returns the extent of all the SSID's measurements, which tells
+     * whether the name might cover several access points.
+     */
+    String CENTROIDS_IN_BOUNDS_QUERY =
+            "SELECT ssid, maxRssi, COUNT(*) AS sampleCount, " +
+            "       SUM(latitude * weight) / SUM(weight) AS latitude, " +
+            "       SUM(longitude * weight) / SUM(weight) AS longitude, " +
+            "       minLatitude, maxLatitude, minLongitude, maxLongitude " +
+            "FROM (SELECT m.ssid AS ssid, b.maxRssi AS maxRssi, " +
+            "             b.minLatE7 / " + E7_SQL + ".0 AS minLatitude, b.maxLatE7 / " + E7_SQL + ".0 AS maxLatitude, " +
+            "             b.minLngE7 / " + E7_SQL + ".0 AS minLongitude, b.maxLngE7 / " + E7_SQL + ".0 AS maxLongitude, " +
+            "             m.latitudeE7 / " + E7_SQL + ".0 AS latitude, " +
+            "             m.longitudeE7 / " + E7_SQL + ".0 AS longitude, " + WEIGHT_SQL + " AS weight " +
+            "      FROM measurements m " +
+            "      JOIN (SELECT ssid, MAX(" + SignalUtils.MIN_RSSI_FLOOR + ", MAX(signalStrength)) AS maxRssi, " +
+            "                   MIN(latitudeE7) AS minLatE7, MAX(latitudeE7) AS maxLatE7, " +
+            "                   MIN(longitudeE7) AS minLngE7, MAX(longitudeE7) AS maxLngE7 " +
+            "            FROM measurements WHERE ssid IN (" + SSIDS_IN_BOUNDS_QUERY + ") " +
+            "            GROUP BY ssid) b ON m.ssid = b.ssid " +
+            "      WHERE m.signalStrength >= b.maxRssi - " + SignalUtils.SIGNAL_FILTER_THRESHOLD_DB + " " +
+            "      ORDER BY m.id) " +
+            "GROUP BY ssid";
+
     @Insert
     void insert(SignalMeasurement measurement);
 
     @Insert
     void insertAll(List<SignalMeasurement> measurements);
 
-    @Query("SELECT * FROM measurements ORDER BY timestamp DESC")
+    @Query("SELECT * FROM measurements ORDER BY timestampSeconds DESC")
     List<SignalMeasurement> getAllMeasurements();
 
-    @Query("SELECT * FROM measurements WHERE ssid = :ssid")
+    @Query(MEASUREMENTS_BY_SSID_QUERY)
     List<SignalMeasurement> getMeasurementsBySsid(String ssid);
 
     @Query("SELECT DISTINCT ssid FROM measurements")
     List<String> getUniqueSsids();
 
-    @Query("SELECT DISTINCT ssid FROM measurements WHERE latitude BETWEEN :minLat AND :maxLat AND " +
-           "((:minLng <= :maxLng AND longitude BETWEEN :minLng AND :maxLng) OR " +
-           " (:minLng > :maxLng AND (longitude >= :minLng OR longitude <= :maxLng)))")
+    @Query(SSIDS_IN_BOUNDS_QUERY)
     List<String> getUniqueSsidsInBounds(double minLat, double maxLat, double minLng, double maxLng);
 
-    @Query("SELECT * FROM measurements WHERE ssid IN (:ssids)")
-    List<SignalMeasurement> getMeasurementsForSsids(List<String> ssids);
+    @Query(MEASUREMENTS_BY_SSID_AFTER_QUERY)
+    List<SignalMeasurement> getMeasurementsBySsidAfter(String ssid, int afterId);
+
+    @Query(CENTROIDS_IN_BOUNDS_QUERY)
+    List<SsidCentroid> getCentroidsInBounds(double minLat, double maxLat, double minLng, double maxLng);
 
     @Query("DELETE FROM measurements")
     void deleteAll();
@@ -2,22 +2,42 @@ package com.example.wifisignaltracker;
 
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.example.wifisignaltracker.core.SignalSample;
+import com.example.wifisignaltracker.core.SignalUtils;
+
 /**
  * Data class representing a WiFi signal measurement at a specific location.
  * Annotated as a Room Entity for SQLite persistence.
+ * The indices back the map's hot queries: lookups by SSID (and by SSID and timestamp when
+ * merging surveys), and the covering (latitudeE7, longitudeE7, ssid) index answers viewport
+ * queries without touching the table.
+ * <p>
+ * Rows are stored compactly, since SQLite sizes integers by value while every REAL takes 8 bytes:
+ * positions as E7 fixed-point integers (~1 cm, far below GPS accuracy), signal strength within
+ * a single byte and timestamps in whole seconds. The double/millisecond accessors convert, so
+ * callers never see the encoding.
  */
-@Entity(tableName = "measurements")
-public class SignalMeasurement {
+@Entity(tableName = "measurements",
+        indices = {
+                @Index({"ssid", "timestampSeconds"}),
+                @Index({"latitudeE7", "longitudeE7", "ssid"})
+        })
+public class SignalMeasurement implements SignalSample {
+
+    static final double E7 = 1e7;
+    static final int MIN_STORED_RSSI = Byte.MIN_VALUE;
+    static final int MAX_STORED_RSSI = Byte.MAX_VALUE;
     
     @PrimaryKey(autoGenerate = true)
     private int id;
     
-    private double latitude;
-    private double longitude;
-    private int signalStrength; // in dBm
-    private long timestamp;
+    private int latitudeE7; // degrees * 10^7
+    private int longitudeE7;
+    private int signalStrength; // in dBm, clamped to a byte
+    private long timestampSeconds;
     private String ssid;
 
     /**
@@ -32,39 +52,51 @@ public class SignalMeasurement {
      */
     @Ignore
     public SignalMeasurement(double latitude, double longitude, int signalStrength, String ssid) {
-        this.latitude = latitude;
-        this.longitude = longitude;
-        this.signalStrength = signalStrength;
+        setLatitude(latitude);
+        setLongitude(longitude);
+        setSignalStrength(signalStrength);
         this.ssid = ssid;
-        this.timestamp = System.currentTimeMillis();
+        setTimestamp(System.currentTimeMillis());
     }
 
     // Getters and Setters required by Room
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
     
-    public double getLatitude() { return latitude; }
-    public void setLatitude(double latitude) { this.latitude = latitude; }
-    
-    public double getLongitude() { return longitude; }
-    public void setLongitude(double longitude) { this.longitude = longitude; }
-    
+    public int getLatitudeE7() { return latitudeE7; }
+    public void setLatitudeE7(int latitudeE7) { this.latitudeE7 = latitudeE7; }
+
+    public int getLongitudeE7() { return longitudeE7; }
+    public void setLongitudeE7(int longitudeE7) { this.longitudeE7 = longitudeE7; }
+
+    public long getTimestampSeconds() { return timestampSeconds; }
+    public void setTimestampSeconds(long timestampSeconds) { this.timestampSeconds = timestampSeconds; }
+
     public int getSignalStrength() { return signalStrength; }
-    public void setSignalStrength(int signalStrength) { this.signalStrength = signalStrength; }
+    public void setSignalStrength(int signalStrength) {
+        this.signalStrength = Math.max(MIN_STORED_RSSI, Math.min(MAX_STORED_RSSI, signalStrength));
+    }
     
     public String getSsid() { return ssid; }
     public void setSsid(String ssid) { this.ssid = ssid; }
-    
-    public long getTimestamp() { return timestamp; }
-    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    // Decoded views of the stored columns
+    public double getLatitude() { return latitudeE7 / E7; }
+    public void setLatitude(double latitude) { this.latitudeE7 = (int) Math.round(latitude * E7); }
+
+    public double getLongitude() { return longitudeE7 / E7; }
+    public void setLongitude(double longitude) { this.longitudeE7 = (int) Math.round(longitude * E7); }
+
+    /**
+     * @return milliseconds since the epoch, truncated to the second it was stored with
+     */
+    public long getTimestamp() { return timestampSeconds * 1000; }
+    public void setTimestamp(long timestampMillis) { this.timestampSeconds = Math.floorDiv(timestampMillis, 1000); }
 
     /**
      * Map signal strength to a hue for Google Maps markers.
      */
     public float getHue() {
-        if (signalStrength >= -50) return 120f;      // Green (Excellent)
-        else if (signalStrength >= -60) return 60f; // Yellow (Good)
-        else if (signalStrength >= -70) return 30f; // Orange (Fair)
-        else return 0f;                             // Red (Poor)
+        return SignalUtils.signalHue(signalStrength);
     }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.wifisignaltracker;
+
+import com.example.wifisignaltracker.core.SignalUtils;
+
+/**
+ * One row of the per-SSID aggregation computed inside SQLite.
+ * Holds the same weighted centroid {@link SignalUtils#calculateWeightedCentroid} would
+ * produce from the SSID's measurements, without loading them.
+ */
+public class SsidCentroid {
+    public String ssid;
+    public double latitude;
+    public double longitude;
+    public int maxRssi; // dBm, strongest signal seen for this SSID
+    public int sampleCount; // measurements that passed the signal filter
+    // Extent of all the SSID's measurements, filtered or not
+    public double minLatitude;
+    public double maxLatitude;
+    public double minLongitude;
+    public double maxLongitude;
+}
@@ -0,0 +1,146 @@
+package com.example.wifisignaltracker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The last summary view the user saw: camera position plus one suspected location per SSID,
+ * or per access point for SSIDs split by ApInstanceCache.
+ * Persisted after summary refreshes that change it, so the next launch can draw it before the
+ * database is touched. Coordinates are stored as E7 fixed-point integers to keep the file small.
+ * Two snapshots are equal when they would be written identically.
+ */
+public class SummarySnapshot {
+
+    private static final int MAGIC = 0x57534e50; // "WSNP"
+    private static final int FORMAT_VERSION = 3; // 2: per-item max RSSI, 3: access point instances
+    private static final double E7 = 1e7;
+
+    public final double cameraLatitude;
+    public final double cameraLongitude;
+    public final float cameraZoom;
+    public final List<WifiClusterItem> items;
+
+    public SummarySnapshot(double cameraLatitude, double cameraLongitude, float cameraZoom,
+                           List<WifiClusterItem> items) {
+        this.cameraLatitude = cameraLatitude;
+        this.cameraLongitude = cameraLongitude;
+        this.cameraZoom = cameraZoom;
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+    }
+
+    /**
+     * Write the snapshot atomically, so a crash mid-write never leaves a truncated file behind.
+     */
+    public void writeTo(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(toE7(cameraLatitude));
+            out.writeInt(toE7(cameraLongitude));
+            out.writeFloat(cameraZoom);
+            out.writeInt(items.size());
+            for (WifiClusterItem item : items) {
+                out.writeUTF(item.getSnippet());
+                out.writeInt(toE7(item.getPosition().latitude));
+                out.writeInt(toE7(item.getPosition().longitude));
+                out.writeShort(item.getMaxRssi());
+                out.writeInt(item.getInstanceId());
+                out.writeShort(item.getInstanceNumber());
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * @return the stored snapshot, or null if there is none, it is truncated, or it was written
+     *         by an incompatible version
+     */
+    public static SummarySnapshot readFrom(File file) throws IOException {
+        if (!file.exists()) return null;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return null;
+
+            double cameraLatitude = fromE7(in.readInt());
+            double cameraLongitude = fromE7(in.readInt());
+            float cameraZoom = in.readFloat();
+            int count = in.readInt();
+            List<WifiClusterItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String ssid = in.readUTF();
+                double lat = fromE7(in.readInt());
+                double lng = fromE7(in.readInt());
+                int maxRssi = in.readShort();
+                int instanceId = in.readInt();
+                int instanceNumber = in.readShort();
+                items.add(instanceId == WifiClusterItem.NO_INSTANCE
+                        ? WifiClusterItem.suspectedLocation(ssid, lat, lng, maxRssi)
+                        : WifiClusterItem.apInstance(ssid, instanceId, instanceNumber, lat, lng, maxRssi));
+            }
+            return new SummarySnapshot(cameraLatitude, cameraLongitude, cameraZoom, items);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SummarySnapshot)) return false;
+        SummarySnapshot other = (SummarySnapshot) o;
+        if (toE7(cameraLatitude) != toE7(other.cameraLatitude)
+                || toE7(cameraLongitude) != toE7(other.cameraLongitude)
+                || Float.compare(cameraZoom, other.cameraZoom) != 0
+                || items.size() != other.items.size()) {
+            return false;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            WifiClusterItem a = items.get(i);
+            WifiClusterItem b = other.items.get(i);
+            if (!a.getSnippet().equals(b.getSnippet())
+                    || toE7(a.getPosition().latitude) != toE7(b.getPosition().latitude)
+                    || toE7(a.getPosition().longitude) != toE7(b.getPosition().longitude)
+                    || a.getMaxRssi() != b.getMaxRssi()
+                    || a.getInstanceId() != b.getInstanceId()
+                    || a.getInstanceNumber() != b.getInstanceNumber()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 31 * toE7(cameraLatitude) + toE7(cameraLongitude);
+        result = 31 * result + Float.floatToIntBits(cameraZoom);
+        for (WifiClusterItem item : items) {
+            result = 31 * result + item.getSnippet().hashCode();
+            result = 31 * result + item.getInstanceId();
+        }
+        return result;
+    }
+
+    private static int toE7(double degrees) {
+        return (int) Math.round(degrees * E7);
+    }
+
+    private static double fromE7(int value) {
+        return value / E7;
+    }
+}
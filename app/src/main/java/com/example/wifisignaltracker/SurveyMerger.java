@@ -0,0 +1,214 @@
+package com.example.wifisignaltracker;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Merges measurements collected on another device into this database.
+ * Rows are copied with set-based INSERT ... SELECT statements, so millions of rows never pass
+ * through Java objects. Rows are considered duplicates when they share SSID, timestamp, signal
+ * strength and position rounded to {@link #POSITION_DECIMALS} decimal places, both against
+ * existing data and within the source itself. Timestamps are whole seconds, so the signal
+ * strength keeps apart distinct readings taken within the same second. Source primary keys are not copied; new ids are assigned on insert.
+ * Files from before the compact encoding (database version 3) are converted on the fly.
+ * <p>
+ * The merge runs on a connection of its own to the source file, with the live database attached
+ * to it. Attaching on Room's connection instead would make Android drop write-ahead logging on
+ * it for the rest of the session. Rows go in in chunks, each its own short write transaction,
+ * so the app's own inserts never wait long for the lock.
+ */
+public class SurveyMerger {
+
+    static final int POSITION_DECIMALS = 5; // ~1 m, finer than phone GPS accuracy
+    static final int CHUNK_ROWS = 20_000; // Source ids per write transaction
+
+    private static final String TARGET_ALIAS = "merge_dst";
+    private static final String KEEP_TABLE = "merge_keep"; // Source ids surviving deduplication
+
+    // Source rows in the current encoding, whichever version of the app wrote the file
+    private static final String CURRENT_SOURCE_SQL =
+            "SELECT id, latitudeE7, longitudeE7, signalStrength, timestampSeconds, ssid " +
+            "FROM main.measurements";
+    private static final String LEGACY_SOURCE_SQL =
+            "SELECT id, " + AppDatabase.LEGACY_LATITUDE_E7_SQL + " AS latitudeE7, " +
+            AppDatabase.LEGACY_LONGITUDE_E7_SQL + " AS longitudeE7, " +
+            AppDatabase.LEGACY_SIGNAL_STRENGTH_SQL + " AS signalStrength, " +
+            AppDatabase.LEGACY_TIMESTAMP_SECONDS_SQL + " AS timestampSeconds, ssid " +
+            "FROM main.measurements";
+
+    // Positions are stored in E7; dividing by this and rounding keeps POSITION_DECIMALS places
+    private static final String POSITION_DIVISOR_SQL = String.valueOf(Math.pow(10, 7 - POSITION_DECIMALS));
+
+    private static final byte[] SQLITE_HEADER = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_WRITE_VERSION_OFFSET = 18; // 1 = rollback journal, 2 = WAL
+    private static final int HEADER_READ_VERSION_OFFSET = 19;
+    private static final int WAL_FORMAT_VERSION = 2;
+
+    /**
+     * @param sourceSql query returning the source rows in the current encoding
+     * @return statement recording the first id of every duplicate group within the source
+     */
+    private static String keepSql(String sourceSql) {
+        return "INSERT INTO " + KEEP_TABLE + " (id) " +
+                "SELECT MIN(id) FROM (" + sourceSql + ") " +
+                "GROUP BY ssid, timestampSeconds, signalStrength, " +
+                "         ROUND(latitudeE7 / " + POSITION_DIVISOR_SQL + "), " +
+                "         ROUND(longitudeE7 / " + POSITION_DIVISOR_SQL + ")";
+    }
+
+    /**
+     * @param sourceSql query returning the source rows in the current encoding
+     * @return statement merging the kept source rows with ids in (?, ?]
+     */
+    private static String mergeSql(String sourceSql) {
+        return "INSERT INTO " + TARGET_ALIAS + ".measurements (latitudeE7, longitudeE7, signalStrength, timestampSeconds, ssid) " +
+                "SELECT s.latitudeE7, s.longitudeE7, s.signalStrength, s.timestampSeconds, s.ssid " +
+                "FROM " + KEEP_TABLE + " k JOIN (" + sourceSql + ") s ON s.id = k.id " +
+                "WHERE k.id > ? AND k.id <= ? " +
+                // Skip rows we already have; the (ssid, timestampSeconds) index keeps this a point lookup
+                "AND NOT EXISTS (SELECT 1 FROM " + TARGET_ALIAS + ".measurements m " +
+                "                WHERE m.ssid = s.ssid AND m.timestampSeconds = s.timestampSeconds " +
+                "                AND m.signalStrength = s.signalStrength " +
+                "                AND ROUND(m.latitudeE7 / " + POSITION_DIVISOR_SQL + ") = ROUND(s.latitudeE7 / " + POSITION_DIVISOR_SQL + ") " +
+                "                AND ROUND(m.longitudeE7 / " + POSITION_DIVISOR_SQL + ") = ROUND(s.longitudeE7 / " + POSITION_DIVISOR_SQL + "))";
+    }
+
+    /**
+     * Outcome of a merge.
+     */
+    public static class Result {
+        public final long merged;
+        public final long skipped;
+
+        Result(long merged, long skipped) {
+            this.merged = merged;
+            this.skipped = skipped;
+        }
+    }
+
+    private final AppDatabase db;
+
+    public SurveyMerger(AppDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * Merge every measurement from another device's database file.
+     * A file in write-ahead-log mode must sit next to its {@code -wal} file, which is folded
+     * into it first. Must be called off the main thread.
+     *
+     * @throws IllegalArgumentException if the file is not a WiFi Signal Tracker database, or is
+     *         in write-ahead-log mode without its {@code -wal} file and so may be missing rows
+     */
+    public Result merge(File sourceFile) {
+        String targetPath = db.getOpenHelper().getWritableDatabase().getPath();
+        if (targetPath == null || targetPath.equals(":memory:")) {
+            throw new IllegalStateException("Surveys can only be merged into a database file");
+        }
+
+        SQLiteDatabase source = openSource(sourceFile);
+        try {
+            if (queryLong(source, "SELECT COUNT(*) FROM main.sqlite_master " +
+                    "WHERE type = 'table' AND name = 'measurements'") == 0) {
+                throw new IllegalArgumentException("Not a WiFi Signal Tracker database: " + sourceFile);
+            }
+            String sourceSql = hasCompactEncoding(source) ? CURRENT_SOURCE_SQL : LEGACY_SOURCE_SQL;
+            long sourceRows = queryLong(source, "SELECT COUNT(*) FROM main.measurements");
+
+            source.execSQL("CREATE TEMP TABLE " + KEEP_TABLE + " (id INTEGER PRIMARY KEY)");
+            source.execSQL(keepSql(sourceSql));
+            long lastId = queryLong(source, "SELECT MAX(id) FROM " + KEEP_TABLE);
+
+            source.execSQL("ATTACH DATABASE ? AS " + TARGET_ALIAS, new Object[] {targetPath});
+            long merged = 0;
+            try (SQLiteStatement statement = source.compileStatement(mergeSql(sourceSql))) {
+                for (long fromId = 0; fromId < lastId; fromId += CHUNK_ROWS) {
+                    statement.bindLong(1, fromId);
+                    statement.bindLong(2, fromId + CHUNK_ROWS);
+                    merged += statement.executeUpdateDelete();
+                }
+            } finally {
+                source.execSQL("DETACH DATABASE " + TARGET_ALIAS);
+            }
+            return new Result(merged, sourceRows - merged);
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Open the source on a rollback-journal connection, folding in its write-ahead log if it has one.
+     */
+    private static SQLiteDatabase openSource(File sourceFile) {
+        boolean walMode = isInWalMode(sourceFile);
+        if (walMode && !new File(sourceFile.getPath() + "-wal").exists()) {
+            throw new IllegalArgumentException("Database is in write-ahead-log mode but its -wal file " +
+                    "was not provided, so its newest measurements may be missing: " + sourceFile);
+        }
+
+        SQLiteDatabase source = SQLiteDatabase.openDatabase(sourceFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        try {
+            if (walMode) {
+                queryLong(source, "PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+            // Also turns off Android's compatibility WAL, so the ATTACH later has no journal
+            // mode left to change on the attached live database
+            source.disableWriteAheadLogging();
+            try (Cursor cursor = source.rawQuery("PRAGMA journal_mode", null)) {
+                if (cursor.moveToFirst() && "wal".equalsIgnoreCase(cursor.getString(0))) {
+                    throw new IllegalStateException("Could not fold the write-ahead log into " + sourceFile);
+                }
+            }
+            return source;
+        } catch (RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return whether the file's header marks it as a write-ahead-log database
+     * @throws IllegalArgumentException if the file is not an SQLite database
+     */
+    static boolean isInWalMode(File file) {
+        byte[] header = new byte[HEADER_READ_VERSION_OFFSET + 1];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(header);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Not a WiFi Signal Tracker database: " + file, e);
+        }
+        for (int i = 0; i < SQLITE_HEADER.length; i++) {
+            if (header[i] != SQLITE_HEADER[i]) {
+                throw new IllegalArgumentException("Not a WiFi Signal Tracker database: " + file);
+            }
+        }
+        return header[HEADER_WRITE_VERSION_OFFSET] == WAL_FORMAT_VERSION
+                || header[HEADER_READ_VERSION_OFFSET] == WAL_FORMAT_VERSION;
+    }
+
+    /**
+     * @return true if the source uses the version 4 columns, false for the version 3 ones
+     */
+    private static boolean hasCompactEncoding(SQLiteDatabase source) {
+        try (Cursor cursor = source.rawQuery("PRAGMA main.table_info(measurements)", null)) {
+            int nameColumn = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                if ("latitudeE7".equals(cursor.getString(nameColumn))) return true;
+            }
+        }
+        return false;
+    }
+
+    private static long queryLong(SQLiteDatabase database, String sql) {
+        try (Cursor cursor = database.rawQuery(sql, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
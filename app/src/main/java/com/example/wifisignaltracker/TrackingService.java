@@ -19,10 +19,12 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
 
@@ -35,11 +37,20 @@ import com.google.android.gms.location.Priority;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Foreground Service that handles location updates and WiFi scanning in the background.
+ * <p>
+ * By default location is requested continuously at high accuracy. When started with
+ * {@link #EXTRA_SCAN_COUPLED_LOCATION}, the GPS is only woken for a short window around
+ * each scan and falls back to passive fixes in between.
+ * <p>
+ * With {@link #EXTRA_PASSIVE_SCANS} the service never scans itself; it only records results
+ * from scans triggered by the system and other apps.
  */
 public class TrackingService extends Service {
 
@@ -47,11 +58,56 @@ public class TrackingService extends Service {
     private static final String CHANNEL_ID = "TrackingServiceChannel";
     private static final int NOTIFICATION_ID = 1;
     private static final int WIFI_SCAN_INTERVAL_MS = 10000; // 10 seconds in background
-    private static final int MIN_SIGNAL_STRENGTH_DBM = -90;
+
+    /** Intent extra (boolean) enabling scan-coupled location duty cycling. */
+    public static final String EXTRA_SCAN_COUPLED_LOCATION = "com.example.wifisignaltracker.SCAN_COUPLED_LOCATION";
+
+    /**
+     * Intent extra (boolean) enabling passive collection: ingest every scan delivery, never call
+     * startScan(), and only take the location fixes other apps ask for.
+     */
+    public static final String EXTRA_PASSIVE_SCANS = "com.example.wifisignaltracker.PASSIVE_SCANS";
+
+    // Scan-coupled mode constants
+    private static final int THROTTLED_SCAN_INTERVAL_MS = 30000; // Android 9+ allows 4 scans per 2 minutes
+    private static final int GPS_WARMUP_TIMEOUT_MS = 5000; // Scan anyway if no fix arrives in time
+    private static final int SCAN_RESULT_TIMEOUT_MS = 10000; // Give up on a scan that never reports back
+    static final long MAX_FIX_AGE_MS = 10000; // Older fixes are not attached to scan results
+    static final float MAX_FIX_ACCURACY_M = 50f; // Coarser fixes neither trigger a scan nor get attached to one
 
     // Track service running state (alternative to deprecated getRunningServices)
     private static volatile boolean isRunning = false;
 
+    /**
+     * Location cost of a tracking session: the fixes the service asked for (one per scan window
+     * in scan-coupled mode, every high-accuracy fix in continuous mode, none in passive mode),
+     * every fix the fused provider delivered, the window fixes turned down as stale or
+     * inaccurate, and the fixes actually attached to stored measurements. Written on the main
+     * thread, readable from any thread.
+     */
+    public static final class FixCounters {
+        private final AtomicInteger requested = new AtomicInteger();
+        private final AtomicInteger received = new AtomicInteger();
+        private final AtomicInteger rejected = new AtomicInteger();
+        private final AtomicInteger used = new AtomicInteger();
+        private final AtomicInteger measurementsStored = new AtomicInteger();
+
+        public int getRequested() { return requested.get(); }
+        public int getReceived() { return received.get(); }
+        public int getRejected() { return rejected.get(); }
+        public int getUsed() { return used.get(); }
+        public int getMeasurementsStored() { return measurementsStored.get(); }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "fixes used %d / requested %d / received %d (%d rejected), %d measurements stored",
+                    getUsed(), getRequested(), getReceived(), getRejected(), getMeasurementsStored());
+        }
+    }
+
+    private static volatile FixCounters fixCounters = new FixCounters();
+
     private WifiManager wifiManager;
     private FusedLocationProviderClient fusedLocationClient;
     private LocationCallback locationCallback;
@@ -59,18 +115,33 @@ public class TrackingService extends Service {
     
     private AppDatabase db;
     private ExecutorService databaseExecutor;
+    private ScanIngestor scanIngestor;
     
     private Handler wifiScanHandler;
     private Runnable wifiScanRunnable;
     private BroadcastReceiver wifiScanReceiver;
+    private WifiManager.ScanResultsCallback scanResultsCallback; // API 30+, passive mode only
+    private boolean passiveScans = false;
+
+    // Scan-coupled location state (main thread only)
+    private boolean scanCoupledLocation = false;
+    private boolean scanWindowOpen = false;
+    private boolean scanStarted = false;
+    private long windowOpenedNanos; // SystemClock.elapsedRealtimeNanos() when the window opened
+    private Runnable warmupTimeoutRunnable;
+    private Runnable scanTimeoutRunnable;
+
+    private Location lastUsedLocation;
 
     @Override
     public void onCreate() {
         super.onCreate();
         
         isRunning = true;
+        fixCounters = new FixCounters();
         db = AppDatabase.getDatabase(this);
         databaseExecutor = Executors.newSingleThreadExecutor();
+        scanIngestor = new ScanIngestor(db.signalDao(), databaseExecutor);
         wifiManager = (WifiManager) getApplicationContext().getSystemService(Context.WIFI_SERVICE);
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
         wifiScanHandler = new Handler(Looper.getMainLooper());
@@ -84,6 +155,22 @@ public class TrackingService extends Service {
             @Override
             public void onLocationResult(@NonNull LocationResult locationResult) {
                 currentLocation = locationResult.getLastLocation();
+                fixCounters.received.addAndGet(locationResult.getLocations().size());
+                if (!scanCoupledLocation && !passiveScans) {
+                    // Continuous tracking asked for every one of these
+                    fixCounters.requested.addAndGet(locationResult.getLocations().size());
+                }
+
+                // In scan-coupled mode the first fresh, accurate fix of a window triggers the scan.
+                // Anything else (a cached passive fix, a coarse first fix) waits for the next one
+                // or the warm-up timeout.
+                if (scanWindowOpen && !scanStarted && currentLocation != null) {
+                    if (isWindowFix(currentLocation, windowOpenedNanos)) {
+                        startScanInWindow();
+                    } else {
+                        fixCounters.rejected.incrementAndGet();
+                    }
+                }
             }
         };
     }
@@ -92,9 +179,7 @@ public class TrackingService extends Service {
         wifiScanReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                if (currentLocation != null) {
-                    processWifiScanResults();
-                }
+                onScanResultsDelivered();
             }
         };
 
@@ -102,6 +187,11 @@ public class TrackingService extends Service {
             @SuppressWarnings("deprecation")
             @Override
             public void run() {
+                if (scanCoupledLocation) {
+                    openScanWindow();
+                    wifiScanHandler.postDelayed(this, getScanCoupledIntervalMs());
+                    return;
+                }
                 try {
                     // Note: startScan() is deprecated and throttled on Android 10+ (API 29).
                     // The OS limits apps to 4 scans per 2-minute window.
@@ -114,33 +204,179 @@ public class TrackingService extends Service {
                 wifiScanHandler.postDelayed(this, WIFI_SCAN_INTERVAL_MS);
             }
         };
+
+        warmupTimeoutRunnable = () -> {
+            if (scanWindowOpen && !scanStarted) {
+                Log.d(TAG, "No fix within warm-up window, scanning anyway");
+                startScanInWindow();
+            }
+        };
+        scanTimeoutRunnable = () -> {
+            if (scanWindowOpen) {
+                Log.d(TAG, "Scan results never arrived, closing window");
+                closeScanWindow();
+            }
+        };
+    }
+
+    /**
+     * Called for every scan delivery, whether we asked for the scan or not.
+     */
+    private void onScanResultsDelivered() {
+        if (currentLocation != null && hasUsableFix()) {
+            processWifiScanResults();
+        }
+        if (scanWindowOpen && scanStarted) {
+            closeScanWindow();
+        }
     }
 
+    /**
+     * On Android 11+ the callback is the supported way to hear about every scan, including
+     * those started by the system and other apps.
+     */
+    @RequiresApi(Build.VERSION_CODES.R)
+    private void registerScanResultsCallback() {
+        scanResultsCallback = new WifiManager.ScanResultsCallback() {
+            @Override
+            public void onScanResultsAvailable() {
+                onScanResultsDelivered();
+            }
+        };
+        wifiManager.registerScanResultsCallback(ContextCompat.getMainExecutor(this), scanResultsCallback);
+    }
+
+    /**
+     * Scans are throttled by the OS on Android 9+, so there is no point waking the GPS
+     * more often than a scan can actually succeed.
+     */
+    private int getScanCoupledIntervalMs() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return Math.max(WIFI_SCAN_INTERVAL_MS, THROTTLED_SCAN_INTERVAL_MS);
+        }
+        return WIFI_SCAN_INTERVAL_MS;
+    }
+
+    /**
+     * Wake the GPS ahead of a scan. The scan itself starts on the first fix or after the warm-up timeout.
+     */
     @SuppressLint("MissingPermission")
-    private void processWifiScanResults() {
-        List<ScanResult> results = wifiManager.getScanResults();
-        List<SignalMeasurement> newMeasurements = new ArrayList<>();
+    private void openScanWindow() {
+        if (scanWindowOpen) return;
+        scanWindowOpen = true;
+        scanStarted = false;
+        windowOpenedNanos = SystemClock.elapsedRealtimeNanos();
+        fixCounters.requested.incrementAndGet(); // The window needs a single fix for its scan
 
+        LocationRequest windowRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 1000)
+                .setMinUpdateIntervalMillis(500).build();
+        fusedLocationClient.requestLocationUpdates(windowRequest, locationCallback, Looper.getMainLooper());
+        wifiScanHandler.postDelayed(warmupTimeoutRunnable, GPS_WARMUP_TIMEOUT_MS);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void startScanInWindow() {
+        scanStarted = true;
+        wifiScanHandler.removeCallbacks(warmupTimeoutRunnable);
+
+        boolean started;
+        try {
+            started = wifiManager.startScan();
+        } catch (Exception e) {
+            Log.e(TAG, "Scan failed", e);
+            started = false;
+        }
+
+        if (started) {
+            wifiScanHandler.postDelayed(scanTimeoutRunnable, SCAN_RESULT_TIMEOUT_MS);
+        } else {
+            // Throttled or failed: don't keep the GPS awake waiting for results that won't come
+            closeScanWindow();
+        }
+    }
+
+    /**
+     * Drop back to passive fixes until the next scan window.
+     */
+    @SuppressLint("MissingPermission")
+    private void closeScanWindow() {
+        scanWindowOpen = false;
+        scanStarted = false;
+        wifiScanHandler.removeCallbacks(warmupTimeoutRunnable);
+        wifiScanHandler.removeCallbacks(scanTimeoutRunnable);
+
+        LocationRequest idleRequest = new LocationRequest.Builder(Priority.PRIORITY_PASSIVE, getScanCoupledIntervalMs())
+                .build();
+        fusedLocationClient.requestLocationUpdates(idleRequest, locationCallback, Looper.getMainLooper());
+
+        Log.d(TAG, "Window closed: " + fixCounters);
+    }
+
+    /**
+     * A fix may trigger a window's scan only if it was taken after the window opened and is
+     * accurate enough to place the results.
+     */
+    static boolean isWindowFix(Location fix, long windowOpenedNanos) {
+        return fix.getElapsedRealtimeNanos() >= windowOpenedNanos && isAccurate(fix);
+    }
+
+    private static boolean isAccurate(Location fix) {
+        return fix.hasAccuracy() && fix.getAccuracy() <= MAX_FIX_ACCURACY_M;
+    }
+
+    /**
+     * In scan-coupled and passive mode a fix may be left over from a while ago and far from
+     * where the scan happened, so only recent, accurate fixes are attached to results.
+     */
+    private boolean hasUsableFix() {
+        if (!scanCoupledLocation && !passiveScans) return true;
+        long ageNanos = SystemClock.elapsedRealtimeNanos() - currentLocation.getElapsedRealtimeNanos();
+        return ageNanos <= MAX_FIX_AGE_MS * 1_000_000L && isAccurate(currentLocation);
+    }
+
+    /**
+     * In passive mode, scans and fixes both come from other apps at their own times.
+     * The result list can hold access points last seen long before or after the fix, so only
+     * those seen within {@link #MAX_FIX_AGE_MS} of it on either side are kept; the rest would be
+     * placed at a position the device was not at when it heard them.
+     */
+    static List<ScanResult> seenNearFix(List<ScanResult> results, Location fix) {
+        long fixMicros = fix.getElapsedRealtimeNanos() / 1000;
+        long maxOffsetMicros = MAX_FIX_AGE_MS * 1000;
+        List<ScanResult> seen = new ArrayList<>(results.size());
         for (ScanResult result : results) {
-            if (result.SSID == null || result.SSID.isEmpty() || result.level < MIN_SIGNAL_STRENGTH_DBM) continue;
-            
-            SignalMeasurement m = new SignalMeasurement(
-                    currentLocation.getLatitude(),
-                    currentLocation.getLongitude(),
-                    result.level,
-                    result.SSID
-            );
-            newMeasurements.add(m);
+            if (Math.abs(result.timestamp - fixMicros) <= maxOffsetMicros) seen.add(result);
+        }
+        return seen;
+    }
+
+    @SuppressLint("MissingPermission")
+    private void processWifiScanResults() {
+        List<ScanResult> results = wifiManager.getScanResults();
+        if (passiveScans && results != null) {
+            results = seenNearFix(results, currentLocation);
         }
+        int stored = scanIngestor.ingest(results, currentLocation.getLatitude(), currentLocation.getLongitude());
 
-        if (!newMeasurements.isEmpty()) {
-            databaseExecutor.execute(() -> db.signalDao().insertAll(newMeasurements));
+        if (stored > 0) {
+            if (currentLocation != lastUsedLocation) {
+                lastUsedLocation = currentLocation;
+                fixCounters.used.incrementAndGet();
+            }
+            fixCounters.measurementsStored.addAndGet(stored);
         }
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         createNotificationChannel();
+
+        // A sticky restart delivers a null intent; keep whatever mode we were started in
+        if (intent != null) {
+            passiveScans = intent.getBooleanExtra(EXTRA_PASSIVE_SCANS, false);
+            // Without our own scan schedule there are no windows to couple location to
+            scanCoupledLocation = !passiveScans && intent.getBooleanExtra(EXTRA_SCAN_COUPLED_LOCATION, false);
+        }
         
         Intent notificationIntent = new Intent(this, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(this,
@@ -170,15 +406,33 @@ public class TrackingService extends Service {
             return;
         }
         
-        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 5000)
-                .setMinUpdateIntervalMillis(2000).build();
+        LocationRequest locationRequest;
+        if (scanCoupledLocation) {
+            // Only listen passively until the first scan window wakes the GPS
+            locationRequest = new LocationRequest.Builder(Priority.PRIORITY_PASSIVE, getScanCoupledIntervalMs())
+                    .build();
+        } else if (passiveScans) {
+            // Scans come from other apps, so fixes do too; never wake the GPS ourselves
+            locationRequest = new LocationRequest.Builder(Priority.PRIORITY_PASSIVE, WIFI_SCAN_INTERVAL_MS)
+                    .build();
+        } else {
+            locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 5000)
+                    .setMinUpdateIntervalMillis(2000).build();
+        }
         
         fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, Looper.getMainLooper());
 
-        ContextCompat.registerReceiver(this, wifiScanReceiver, 
-                new IntentFilter(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION), ContextCompat.RECEIVER_NOT_EXPORTED);
+        if (passiveScans && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            registerScanResultsCallback();
+        } else {
+            // The broadcast also fires for scans we didn't start, so older devices can collect passively too
+            ContextCompat.registerReceiver(this, wifiScanReceiver, 
+                    new IntentFilter(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION), ContextCompat.RECEIVER_NOT_EXPORTED);
+        }
         
-        wifiScanHandler.post(wifiScanRunnable);
+        if (!passiveScans) {
+            wifiScanHandler.post(wifiScanRunnable);
+        }
     }
 
     @Override
@@ -187,7 +441,14 @@ public class TrackingService extends Service {
         isRunning = false;
         fusedLocationClient.removeLocationUpdates(locationCallback);
         wifiScanHandler.removeCallbacks(wifiScanRunnable);
+        wifiScanHandler.removeCallbacks(warmupTimeoutRunnable);
+        wifiScanHandler.removeCallbacks(scanTimeoutRunnable);
+        Log.i(TAG, "Session: " + fixCounters);
         
+        if (scanResultsCallback != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            wifiManager.unregisterScanResultsCallback(scanResultsCallback);
+        }
+
         // Unregister receiver with proper error handling
         if (wifiScanReceiver != null) {
             try {
@@ -211,6 +472,13 @@ public class TrackingService extends Service {
         return isRunning;
     }
 
+    /**
+     * @return the location cost counters of the running session, or of the last one once stopped
+     */
+    public static FixCounters getFixCounters() {
+        return fixCounters;
+    }
+
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
@@ -7,11 +7,42 @@ public class WifiClusterItem implements ClusterItem {
     private final LatLng position;
     private final String title;
     private final String snippet;
+    private final int maxRssi; // Strongest signal seen, in dBm; drives the marker color
+    // Id of the earliest measurement of the access point this item marks, or NO_INSTANCE when
+    // the item stands for every measurement of its SSID
+    private final int instanceId;
+    private final int instanceNumber; // 1-based position among the SSID's instances, 0 if unsplit
 
-    public WifiClusterItem(double lat, double lng, String title, String snippet) {
+    public static final int NO_INSTANCE = 0;
+
+    public WifiClusterItem(double lat, double lng, String title, String snippet, int maxRssi) {
+        this(lat, lng, title, snippet, maxRssi, NO_INSTANCE, 0);
+    }
+
+    private WifiClusterItem(double lat, double lng, String title, String snippet, int maxRssi,
+                            int instanceId, int instanceNumber) {
         this.position = new LatLng(lat, lng);
         this.title = title;
         this.snippet = snippet;
+        this.maxRssi = maxRssi;
+        this.instanceId = instanceId;
+        this.instanceNumber = instanceNumber;
+    }
+
+    /**
+     * Item marking the suspected broadcast location of an SSID in the summary view.
+     */
+    public static WifiClusterItem suspectedLocation(String ssid, double lat, double lng, int maxRssi) {
+        return new WifiClusterItem(lat, lng, "Suspected: " + ssid, ssid, maxRssi);
+    }
+
+    /**
+     * Item marking one of several access points sharing an SSID, see {@link ApInstanceCache}.
+     */
+    public static WifiClusterItem apInstance(String ssid, int instanceId, int instanceNumber,
+                                             double lat, double lng, int maxRssi) {
+        String name = ssid + " (" + instanceNumber + ")";
+        return new WifiClusterItem(lat, lng, "Suspected: " + name, ssid, maxRssi, instanceId, instanceNumber);
     }
 
     @Override
@@ -29,6 +60,25 @@ public class WifiClusterItem implements ClusterItem {
         return snippet;
     }
 
+    public int getMaxRssi() {
+        return maxRssi;
+    }
+
+    public int getInstanceId() {
+        return instanceId;
+    }
+
+    public int getInstanceNumber() {
+        return instanceNumber;
+    }
+
+    /**
+     * @return the SSID, numbered when it is one of several access points sharing the name
+     */
+    public String getDisplayName() {
+        return instanceId == NO_INSTANCE ? snippet : snippet + " (" + instanceNumber + ")";
+    }
+
     @Override
     public Float getZIndex() {
         return 0.0f;
@@ -0,0 +1,89 @@
+package com.example.wifisignaltracker;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import androidx.annotation.NonNull;
+
+import com.example.wifisignaltracker.core.SignalUtils;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.maps.android.clustering.Cluster;
+import com.google.maps.android.clustering.ClusterManager;
+import com.google.maps.android.clustering.view.DefaultClusterRenderer;
+
+/**
+ * Colors suspected locations and clusters by their strongest signal, using the same hues as
+ * the raw measurement markers. All icons come from an {@link IconAtlas}, so re-clustering only
+ * places markers and never generates bitmaps after the first few frames.
+ */
+public class WifiClusterRenderer extends DefaultClusterRenderer<WifiClusterItem> {
+
+    private static final float CLUSTER_ICON_DP = 36f;
+    private static final float CLUSTER_ICON_GROWTH_DP = 4f; // Per order of magnitude of cluster size
+    private static final float OUTLINE_DP = 3f;
+    private static final float LABEL_SP = 13f;
+
+    private final IconAtlas<BitmapDescriptor> atlas = new IconAtlas<>(this::renderIcon);
+    private final DisplayMetrics displayMetrics;
+
+    public WifiClusterRenderer(Context context, GoogleMap map, ClusterManager<WifiClusterItem> clusterManager) {
+        super(context, map, clusterManager);
+        displayMetrics = context.getResources().getDisplayMetrics();
+    }
+
+    @Override
+    protected void onBeforeClusterItemRendered(@NonNull WifiClusterItem item, @NonNull MarkerOptions markerOptions) {
+        super.onBeforeClusterItemRendered(item, markerOptions);
+        markerOptions.icon(atlas.get(1, SignalUtils.signalTier(item.getMaxRssi())));
+    }
+
+    @Override
+    protected void onClusterItemUpdated(@NonNull WifiClusterItem item, @NonNull Marker marker) {
+        super.onClusterItemUpdated(item, marker);
+        marker.setIcon(atlas.get(1, SignalUtils.signalTier(item.getMaxRssi())));
+    }
+
+    @NonNull
+    @Override
+    protected BitmapDescriptor getDescriptorForCluster(@NonNull Cluster<WifiClusterItem> cluster) {
+        int maxRssi = SignalUtils.MIN_RSSI_FLOOR;
+        for (WifiClusterItem item : cluster.getItems()) {
+            maxRssi = Math.max(maxRssi, item.getMaxRssi());
+        }
+        return atlas.get(cluster.getSize(), SignalUtils.signalTier(maxRssi));
+    }
+
+    private BitmapDescriptor renderIcon(int bucket, int tier) {
+        float hue = SignalUtils.tierHue(tier);
+        if (bucket == 1) return BitmapDescriptorFactory.defaultMarker(hue);
+
+        int diameter = Math.round((CLUSTER_ICON_DP + CLUSTER_ICON_GROWTH_DP * (float) Math.log10(bucket)) * displayMetrics.density);
+        float radius = diameter / 2f;
+        Bitmap bitmap = Bitmap.createBitmap(diameter, diameter, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        paint.setColor(Color.WHITE);
+        canvas.drawCircle(radius, radius, radius, paint);
+        paint.setColor(Color.HSVToColor(new float[] {hue, 0.8f, 0.9f}));
+        canvas.drawCircle(radius, radius, radius - OUTLINE_DP * displayMetrics.density, paint);
+
+        paint.setColor(Color.BLACK);
+        paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, LABEL_SP, displayMetrics));
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setFakeBoldText(true);
+        float baseline = radius - (paint.ascent() + paint.descent()) / 2f;
+        canvas.drawText(IconAtlas.label(bucket), radius, baseline, paint);
+
+        return BitmapDescriptorFactory.fromBitmap(bitmap);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.wifisignaltracker;
+
+import androidx.room.Room;
+
+import com.example.wifisignaltracker.core.InstanceClusterer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ApInstanceCacheTest {
+
+    private AppDatabase db;
+    private ApInstanceCache cache;
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(RuntimeEnvironment.getApplication(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        cache = new ApInstanceCache(db.signalDao());
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void testSplitsSharedSsidAndPicksUpNewRows() {
+        db.signalDao().insertAll(List.of(
+                new SignalMeasurement(47.0000, -122.0, -50, "Chain"),
+                new SignalMeasurement(47.0005, -122.0, -60, "Chain"),
+                new SignalMeasurement(47.1000, -122.0, -55, "Chain"),
+                new SignalMeasurement(47.0000, -122.0, -40, "Other")));
+
+        List<InstanceClusterer<SignalMeasurement>.Instance> instances = cache.instancesOf("Chain");
+        assertEquals(2, instances.size());
+        assertEquals(2, instances.get(0).size());
+        assertEquals(1, instances.get(1).size());
+
+        // Rows inserted after the first split land in the instance they belong to
+        db.signalDao().insert(new SignalMeasurement(47.1001, -122.0, -45, "Chain"));
+        instances = cache.instancesOf("Chain");
+        assertEquals(2, instances.size());
+        assertEquals(2, instances.get(1).size());
+        assertEquals(-45, instances.get(1).getMaxRssi());
+        assertEquals(47.1001, instances.get(1).getCentroid().latitude, 1e-4);
+
+        // Opening an instance reloads exactly its rows
+        int farInstanceId = instances.get(1).getFirst().getId();
+        List<SignalMeasurement> far = cache.measurementsOf("Chain", farInstanceId);
+        assertEquals(2, far.size());
+        assertEquals(farInstanceId, far.get(0).getId());
+        assertEquals(-45, far.get(1).getSignalStrength());
+        assertEquals(2, cache.measurementsOf("Chain", instances.get(0).getFirst().getId()).size());
+        assertNull(cache.measurementsOf("Chain", Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testMergedInstanceResolvesToTheOneThatAbsorbedIt() {
+        db.signalDao().insertAll(List.of(
+                new SignalMeasurement(47.0, -122.0, -80, "Chain"),
+                new SignalMeasurement(47.0, east(700), -80, "Chain")));
+        List<InstanceClusterer<SignalMeasurement>.Instance> instances = cache.instancesOf("Chain");
+        assertEquals(2, instances.size());
+        int westId = instances.get(0).getFirst().getId();
+        int eastId = instances.get(1).getFirst().getId();
+        assertEquals(1, cache.measurementsOf("Chain", eastId).size());
+
+        // Stronger signals between the two pull the west anchor close enough to merge them
+        db.signalDao().insertAll(List.of(
+                new SignalMeasurement(47.0, east(250), -70, "Chain"),
+                new SignalMeasurement(47.0, east(420), -60, "Chain")));
+        assertEquals(1, cache.instancesOf("Chain").size());
+
+        List<SignalMeasurement> merged = cache.measurementsOf("Chain", eastId);
+        assertEquals(4, merged.size());
+        assertEquals(westId, merged.get(0).getId());
+        // Unchanged rows are served from the cache
+        assertSame(merged, cache.measurementsOf("Chain", westId));
+    }
+
+    @Test
+    public void testClearForgetsDeletedRows() {
+        db.signalDao().insert(new SignalMeasurement(47.0, -122.0, -50, "Chain"));
+        assertEquals(1, cache.instancesOf("Chain").size());
+
+        db.signalDao().deleteAll();
+        cache.clear();
+
+        assertTrue(cache.instancesOf("Chain").isEmpty());
+    }
+
+    @Test
+    public void testOnlyWideSsidsAreCandidates() {
+        db.signalDao().insertAll(List.of(
+                new SignalMeasurement(47.0000, -122.0, -50, "Home"),
+                new SignalMeasurement(47.0010, -122.0, -70, "Home"),
+                new SignalMeasurement(47.0000, -122.0, -50, "Chain"),
+                new SignalMeasurement(47.1000, -122.0, -50, "Chain")));
+
+        for (SsidCentroid centroid : db.signalDao().getCentroidsInBounds(-90, 90, -180, 180)) {
+            if (centroid.ssid.equals("Home")) {
+                assertFalse(ApInstanceCache.mightSpanSeveralAps(centroid));
+            } else {
+                assertTrue(ApInstanceCache.mightSpanSeveralAps(centroid));
+            }
+        }
+    }
+
+    private static double east(double meters) {
+        return -122.0 + meters / (111_320.0 * Math.cos(Math.toRadians(47.0)));
+    }
+}
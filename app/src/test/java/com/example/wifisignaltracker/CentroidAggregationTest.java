@@ -0,0 +1,145 @@
+package com.example.wifisignaltracker;
+
+import androidx.room.Room;
+
+import com.example.wifisignaltracker.core.GeoPoint;
+import com.example.wifisignaltracker.core.SignalUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the SQL aggregation in {@link SignalDao#getCentroidsInBounds} reproduces
+ * {@link SignalUtils#calculateWeightedCentroid}. Newer SQLite versions sum floating point with
+ * compensated summation, so positions are compared to well below a millimetre rather than bit for bit.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CentroidAggregationTest {
+
+    private static final double TOLERANCE_DEGREES = 1e-9;
+
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(RuntimeEnvironment.getApplication(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void testMatchesJavaCentroidForEverySsid() {
+        Random random = new Random(7);
+        List<SignalMeasurement> measurements = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            measurements.add(new SignalMeasurement(
+                    47.0 + random.nextDouble(), -122.0 - random.nextDouble(),
+                    -95 + random.nextInt(75), "Net-" + random.nextInt(50)));
+        }
+        db.signalDao().insertAll(measurements);
+
+        List<SsidCentroid> centroids = db.signalDao().getCentroidsInBounds(-90, 90, -180, 180);
+
+        assertEquals(50, centroids.size());
+        for (SsidCentroid centroid : centroids) {
+            assertMatchesJava(centroid);
+        }
+    }
+
+    @Test
+    public void testWeightExponentMatchesSqlExpansion() {
+        // SignalDao.WEIGHT_SQL multiplies the base six times
+        assertEquals(6.0, SignalUtils.WEIGHT_EXPONENT, 0.0);
+    }
+
+    @Test
+    public void testFilteredSignalsAreExcluded() {
+        db.signalDao().insertAll(List.of(
+                new SignalMeasurement(10.0, 20.0, -40, "TestSSID"),
+                new SignalMeasurement(10.0, 22.0, -80, "TestSSID")));
+
+        SsidCentroid centroid = db.signalDao().getCentroidsInBounds(-90, 90, -180, 180).get(0);
+
+        assertEquals(-40, centroid.maxRssi);
+        assertEquals(1, centroid.sampleCount);
+        assertEquals(10.0, centroid.latitude, TOLERANCE_DEGREES);
+        assertEquals(20.0, centroid.longitude, TOLERANCE_DEGREES);
+    }
+
+    @Test
+    public void testBoundsSelectSsidsButCentroidUsesAllTheirPoints() {
+        db.signalDao().insertAll(List.of(
+                // Visible: one point inside the viewport, one strong point far outside it
+                new SignalMeasurement(10.0, 20.0, -60, "Visible"),
+                new SignalMeasurement(30.0, 40.0, -40, "Visible"),
+                // Entirely outside the viewport
+                new SignalMeasurement(30.0, 40.0, -50, "Hidden")));
+
+        List<SsidCentroid> centroids = db.signalDao().getCentroidsInBounds(9.0, 11.0, 19.0, 21.0);
+
+        assertEquals(1, centroids.size());
+        assertEquals("Visible", centroids.get(0).ssid);
+        assertMatchesJava(centroids.get(0));
+    }
+
+    @Test
+    public void testAntimeridianBounds() {
+        db.signalDao().insertAll(List.of(
+                new SignalMeasurement(0.0, 179.9, -50, "East"),
+                new SignalMeasurement(0.0, -179.9, -50, "West"),
+                new SignalMeasurement(0.0, 0.0, -50, "Greenwich")));
+
+        List<SsidCentroid> centroids = db.signalDao().getCentroidsInBounds(-1, 1, 179.5, -179.5);
+
+        Set<String> ssids = new HashSet<>();
+        for (SsidCentroid centroid : centroids) ssids.add(centroid.ssid);
+        assertEquals(Set.of("East", "West"), ssids);
+    }
+
+    private void assertMatchesJava(SsidCentroid centroid) {
+        List<SignalMeasurement> rows = new ArrayList<>(db.signalDao().getMeasurementsBySsid(centroid.ssid));
+        // The SQL sums in id order; feed Java the same order
+        rows.sort(Comparator.comparingInt(SignalMeasurement::getId));
+        GeoPoint expected = SignalUtils.calculateWeightedCentroid(rows);
+
+        assertEquals(centroid.ssid, expected.latitude, centroid.latitude, TOLERANCE_DEGREES);
+        assertEquals(centroid.ssid, expected.longitude, centroid.longitude, TOLERANCE_DEGREES);
+
+        int maxRssi = Integer.MIN_VALUE;
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        for (SignalMeasurement m : rows) {
+            maxRssi = Math.max(maxRssi, m.getSignalStrength());
+            minLat = Math.min(minLat, m.getLatitude());
+            maxLat = Math.max(maxLat, m.getLatitude());
+            minLng = Math.min(minLng, m.getLongitude());
+            maxLng = Math.max(maxLng, m.getLongitude());
+        }
+        assertEquals(maxRssi, centroid.maxRssi);
+        // The extent covers filtered-out measurements too
+        assertEquals(minLat, centroid.minLatitude, TOLERANCE_DEGREES);
+        assertEquals(maxLat, centroid.maxLatitude, TOLERANCE_DEGREES);
+        assertEquals(minLng, centroid.minLongitude, TOLERANCE_DEGREES);
+        assertEquals(maxLng, centroid.maxLongitude, TOLERANCE_DEGREES);
+        assertTrue(centroid.sampleCount >= 1 && centroid.sampleCount <= rows.size());
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.wifisignaltracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the version 4 compact encoding: the migration from version 3 keeps every measurement,
+ * and the same synthetic survey stored both ways is compared for size and viewport query time.
+ * The size comparison is deterministic and always runs. The query-time comparison seeds
+ * {@code -PencodingRows} rows (default 1M) into each layout and only runs with
+ * {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CompactEncodingTest {
+
+    private static final String LEGACY_DB_NAME = "legacy_encoding_test_db";
+    private static final String COMPACT_DB_NAME = "compact_encoding_test_db";
+    private static final boolean BENCHMARKS = Boolean.getBoolean("benchmarks");
+    private static final int SIZE_ROWS = 50_000; // Enough for the page overhead to even out
+    private static final int BENCHMARK_ROWS = Integer.getInteger("encodingRows", 1_000_000);
+    private static final double MAX_SIZE_RATIO = 0.9;
+    // The compact viewport query compares scaled integer bounds; it must not be noticeably slower
+    private static final double MAX_QUERY_TIME_RATIO = 1.5;
+    private static final int QUERY_REPEATS = 20;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(LEGACY_DB_NAME);
+        context.deleteDatabase(COMPACT_DB_NAME);
+    }
+
+    @Test
+    public void testMigrationFromVersion3KeepsMeasurements() {
+        SQLiteDatabase legacy = LegacyDatabase.create(context.getDatabasePath(LEGACY_DB_NAME));
+        LegacyDatabase.insert(legacy, 47.123456789, -122.987654321, -42, "Home", 1_700_000_000_999L);
+        LegacyDatabase.insert(legacy, -33.5, 151.25, -200, "Weak", 1_700_000_001_000L);
+        legacy.close();
+
+        // Room validates the migrated table against the entity before handing it out
+        AppDatabase db = Room.databaseBuilder(context, AppDatabase.class, LEGACY_DB_NAME)
+                .addMigrations(AppDatabase.MIGRATION_3_4)
+                .allowMainThreadQueries()
+                .build();
+        try {
+            SignalMeasurement home = db.signalDao().getMeasurementsBySsid("Home").get(0);
+            assertEquals(47.1234568, home.getLatitude(), 0.0);
+            assertEquals(-122.9876543, home.getLongitude(), 0.0);
+            assertEquals(-42, home.getSignalStrength());
+            assertEquals(1_700_000_000_000L, home.getTimestamp());
+
+            SignalMeasurement weak = db.signalDao().getMeasurementsBySsid("Weak").get(0);
+            assertEquals(SignalMeasurement.MIN_STORED_RSSI, weak.getSignalStrength());
+
+            List<String> inBounds = db.signalDao().getUniqueSsidsInBounds(47.0, 48.0, -123.0, -122.0);
+            assertEquals(List.of("Home"), inBounds);
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testCompactEncodingIsSmaller() {
+        SQLiteDatabase legacy = seedLegacy(SIZE_ROWS);
+        AppDatabase compactDb = Room.databaseBuilder(context, AppDatabase.class, COMPACT_DB_NAME).build();
+        SupportSQLiteDatabase compact = seedCompact(compactDb, SIZE_ROWS);
+
+        long legacyBytes = queryLong(legacy.rawQuery("PRAGMA page_count", null)) *
+                queryLong(legacy.rawQuery("PRAGMA page_size", null));
+        long compactBytes = queryLong(compact.query("PRAGMA page_count")) *
+                queryLong(compact.query("PRAGMA page_size"));
+        legacy.close();
+        compactDb.close();
+
+        assertTrue("Compact " + compactBytes + " bytes vs legacy " + legacyBytes,
+                compactBytes <= legacyBytes * MAX_SIZE_RATIO);
+    }
+
+    @Test
+    public void testCompactViewportQueryIsNoSlower() {
+        assumeTrue("Benchmark, run with -Pbenchmarks", BENCHMARKS);
+        SQLiteDatabase legacy = seedLegacy(BENCHMARK_ROWS);
+        AppDatabase compactDb = Room.databaseBuilder(context, AppDatabase.class, COMPACT_DB_NAME).build();
+        SupportSQLiteDatabase compact = seedCompact(compactDb, BENCHMARK_ROWS);
+
+        // The same city-block viewport in both encodings
+        double legacyMs = timeQuery(() -> legacy.rawQuery(
+                "SELECT DISTINCT ssid FROM measurements " +
+                "WHERE latitude BETWEEN 47.10 AND 47.12 AND longitude BETWEEN -122.40 AND -122.38", null));
+        double compactMs = timeQuery(() -> compact.query(
+                SignalDao.SSIDS_IN_BOUNDS_QUERY.replaceAll(":(minLat|maxLat|minLng|maxLng)", "?"),
+                new Object[] {47.10, 47.12, -122.40, -122.38, -122.40, -122.38, -122.40, -122.38, -122.40, -122.38}));
+
+        System.out.println(String.format(Locale.US, "%d rows: legacy %.2f ms/query, compact %.2f ms/query",
+                BENCHMARK_ROWS, legacyMs, compactMs));
+        legacy.close();
+        compactDb.close();
+
+        assertTrue("Compact " + compactMs + " ms vs legacy " + legacyMs + " ms",
+                compactMs <= legacyMs * MAX_QUERY_TIME_RATIO);
+    }
+
+    private SQLiteDatabase seedLegacy(int rows) {
+        SQLiteDatabase legacy = LegacyDatabase.create(context.getDatabasePath(LEGACY_DB_NAME));
+        legacy.execSQL(seedSql(rows, "latitude, longitude, signalStrength, timestamp",
+                "47.0 + ((x * 7919) % 100000) / 100000.0, -122.5 + ((x * 104729) % 100000) / 100000.0, " +
+                "-30 - ((x * 31) % 60), 1700000000000 + x * 1000"));
+        return legacy;
+    }
+
+    private static SupportSQLiteDatabase seedCompact(AppDatabase compactDb, int rows) {
+        SupportSQLiteDatabase compact = compactDb.getOpenHelper().getWritableDatabase();
+        compact.execSQL(seedSql(rows, "latitudeE7, longitudeE7, signalStrength, timestampSeconds",
+                "470000000 + ((x * 7919) % 100000) * 100, -1225000000 + ((x * 104729) % 100000) * 100, " +
+                "-30 - ((x * 31) % 60), 1700000000 + x"));
+        return compact;
+    }
+
+    private static String seedSql(int rows, String columns, String values) {
+        return "WITH RECURSIVE seq(x) AS (SELECT 0 UNION ALL SELECT x + 1 FROM seq WHERE x < " + (rows - 1) + ") " +
+                "INSERT INTO measurements (" + columns + ", ssid) " +
+                "SELECT " + values + ", 'Net-' || (x % 5000) FROM seq";
+    }
+
+    private interface CursorQuery {
+        Cursor run();
+    }
+
+    /**
+     * @return mean milliseconds per query, reading every row
+     */
+    private static double timeQuery(CursorQuery query) {
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERY_REPEATS; i++) {
+            try (Cursor cursor = query.run()) {
+                assertTrue(cursor.getCount() > 0);
+            }
+        }
+        return (System.nanoTime() - start) / 1e6 / QUERY_REPEATS;
+    }
+
+    private static long queryLong(Cursor cursor) {
+        try (Cursor c = cursor) {
+            c.moveToFirst();
+            return c.getLong(0);
+        }
+    }
+}
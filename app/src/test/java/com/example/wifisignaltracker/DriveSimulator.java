@@ -0,0 +1,108 @@
+package com.example.wifisignaltracker;
+
+import android.net.wifi.ScanResult;
+
+import org.robolectric.shadows.ShadowScanResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates a synthetic drive through a field of access points.
+ * Each call to {@link #nextScan()} advances the vehicle and returns the location fix and
+ * ScanResult set a phone would have observed there. Access points are scattered along the
+ * route at a density chosen so that roughly {@code apsPerScan} are in range at any time, and
+ * consecutive scans see overlapping sets, as on a real drive.
+ */
+class DriveSimulator {
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+    private static final double AP_RANGE_METERS = 150.0;
+    private static final double LATERAL_SPREAD_METERS = 100.0;
+    private static final double TX_POWER_DBM = -40.0; // RSSI at 1 m
+    private static final double PATH_LOSS_EXPONENT = 2.7;
+    private static final double SHADOWING_STDDEV_DB = 4.0;
+    private static final long SCAN_INTERVAL_MICROS = 30_000_000L; // Throttled scan cadence
+
+    /** One simulated scan: where it happened and what was heard. */
+    static class Scan {
+        final double latitude;
+        final double longitude;
+        final List<ScanResult> results;
+
+        Scan(double latitude, double longitude, List<ScanResult> results) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.results = results;
+        }
+    }
+
+    private final Random random;
+    private final double metersPerScan;
+    private final double[] apAlongTrack;
+    private final double[] apLateral;
+    private final String[] apSsids;
+    private final String[] apBssids;
+
+    private final double originLat;
+    private final double originLng;
+    private double distanceTravelled = 0;
+    private long scanTimestampMicros = 0;
+
+    /**
+     * @param seed random seed, so runs are reproducible
+     * @param apsPerScan average number of access points in range of each scan
+     * @param scans number of scans the drive will last
+     * @param metersPerScan distance travelled between scans
+     */
+    DriveSimulator(long seed, int apsPerScan, int scans, double metersPerScan) {
+        this.random = new Random(seed);
+        this.metersPerScan = metersPerScan;
+        this.originLat = 47.6062;
+        this.originLng = -122.3321;
+
+        // Cover the whole route plus one range on either side
+        double routeLength = scans * metersPerScan + 2 * AP_RANGE_METERS;
+        double apsPerMeter = apsPerScan / (2 * AP_RANGE_METERS);
+        int apCount = Math.max(1, (int) Math.round(routeLength * apsPerMeter));
+
+        apAlongTrack = new double[apCount];
+        apLateral = new double[apCount];
+        apSsids = new String[apCount];
+        apBssids = new String[apCount];
+        for (int i = 0; i < apCount; i++) {
+            apAlongTrack[i] = random.nextDouble() * routeLength - AP_RANGE_METERS;
+            apLateral[i] = (random.nextDouble() * 2 - 1) * LATERAL_SPREAD_METERS;
+            apSsids[i] = String.format(Locale.US, "SimNet-%05d", i);
+            apBssids[i] = String.format(Locale.US, "02:00:00:%02x:%02x:%02x",
+                    (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff);
+        }
+    }
+
+    Scan nextScan() {
+        double position = distanceTravelled;
+        distanceTravelled += metersPerScan;
+        scanTimestampMicros += SCAN_INTERVAL_MICROS;
+
+        List<ScanResult> results = new ArrayList<>();
+        for (int i = 0; i < apAlongTrack.length; i++) {
+            double along = apAlongTrack[i] - position;
+            if (Math.abs(along) > AP_RANGE_METERS) continue;
+
+            double distance = Math.max(1.0, Math.hypot(along, apLateral[i]));
+            double rssi = TX_POWER_DBM - 10 * PATH_LOSS_EXPONENT * Math.log10(distance)
+                    + random.nextGaussian() * SHADOWING_STDDEV_DB;
+            ScanResult result = ShadowScanResult.newInstance(apSsids[i], apBssids[i], "[ESS]",
+                    (int) Math.round(rssi), 2437);
+            // Time since boot at which the AP was seen; ScanIngestor drops results that aren't newer
+            result.timestamp = scanTimestampMicros;
+            results.add(result);
+        }
+
+        // Drive due east; longitude degrees shrink with latitude
+        double metersPerDegreeLng = METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(originLat));
+        return new Scan(originLat, originLng + position / metersPerDegreeLng, results);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.wifisignaltracker;
+
+import com.example.wifisignaltracker.core.SignalUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IconAtlasTest {
+
+    @Test
+    public void testIconsAreRenderedOnceAndReused() {
+        List<String> rendered = new ArrayList<>();
+        IconAtlas<String> atlas = new IconAtlas<>((bucket, tier) -> {
+            String icon = bucket + "/" + tier;
+            rendered.add(icon);
+            return icon;
+        });
+
+        String first = atlas.get(25, 1);
+        // Any size in the same bucket, on any later re-cluster, reuses the icon
+        assertSame(first, atlas.get(49, 1));
+        assertSame(first, atlas.get(20, 1));
+
+        assertEquals(List.of("20/1"), rendered);
+    }
+
+    @Test
+    public void testAtlasStaysBoundedForAnySize() {
+        IconAtlas<String> atlas = new IconAtlas<>((bucket, tier) -> bucket + "/" + tier);
+        for (int size = 1; size <= 100_000; size++) {
+            for (int tier = 0; tier < SignalUtils.SIGNAL_TIER_COUNT; tier++) {
+                atlas.get(size, tier);
+            }
+        }
+        assertEquals(IconAtlas.MAX_ICONS, atlas.size());
+    }
+
+    @Test
+    public void testBucketsAndLabels() {
+        assertEquals(1, IconAtlas.bucketFor(1));
+        assertEquals(9, IconAtlas.bucketFor(9));
+        assertEquals(10, IconAtlas.bucketFor(19));
+        assertEquals(500, IconAtlas.bucketFor(999));
+        assertEquals(1000, IconAtlas.bucketFor(1_000_000));
+
+        assertEquals("7", IconAtlas.label(7));
+        assertEquals("50+", IconAtlas.label(50));
+    }
+
+    @Test
+    public void testSignalTiersMatchMarkerHues() {
+        assertEquals(0, SignalUtils.signalTier(-40));
+        assertEquals(1, SignalUtils.signalTier(-60));
+        assertEquals(2, SignalUtils.signalTier(-61));
+        assertEquals(SignalUtils.SIGNAL_TIER_COUNT - 1, SignalUtils.signalTier(-90));
+        assertTrue(SignalUtils.signalHue(-40) > SignalUtils.signalHue(-90)); // Green above red
+        assertEquals(30f, new SignalMeasurement(0, 0, -65, "Net").getHue(), 0f);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.wifisignaltracker;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives synthetic scans through {@link ScanIngestor} into an in-memory database, on the same
+ * unbounded single-thread executor the service uses, and checks that every queued row commits
+ * and how much the database grows per row. With -Pbenchmarks it also reports sustained ingest
+ * throughput and end-to-end latency per scan, queueing delay included, and checks them against
+ * loose bounds meant to catch order-of-magnitude regressions.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IngestionLoadTest {
+
+    // Wall-clock bounds only apply with ./gradlew testDebugUnitTest -Pbenchmarks
+    private static final boolean BENCHMARKS = Boolean.getBoolean("benchmarks");
+    private static final double MIN_ROWS_PER_SECOND = 500.0;
+    // Scans are queued as fast as they are simulated, so late batches wait behind the whole drive
+    private static final double MAX_P99_LATENCY_MS = 10_000.0;
+    // A row plus its two index entries takes about 90 bytes
+    private static final double MAX_BYTES_PER_ROW = 200.0;
+
+    private AppDatabase db;
+    private ExecutorService databaseExecutor;
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(RuntimeEnvironment.getApplication(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        databaseExecutor = Executors.newSingleThreadExecutor(); // As in TrackingService
+    }
+
+    @After
+    public void tearDown() {
+        databaseExecutor.shutdownNow();
+        db.close();
+    }
+
+    @Test
+    public void testSparseScans() throws Exception {
+        runDrive("sparse", 5, 1000);
+    }
+
+    @Test
+    public void testDenseScans() throws Exception {
+        runDrive("dense", 50, 500);
+    }
+
+    @Test
+    public void testVeryDenseScans() throws Exception {
+        runDrive("very dense", 300, 200);
+    }
+
+    private void runDrive(String name, int apsPerScan, int scans) throws Exception {
+        DriveSimulator simulator = new DriveSimulator(42, apsPerScan, scans, 15.0);
+        SupportSQLiteDatabase sqlite = db.getOpenHelper().getWritableDatabase();
+
+        List<Long> latenciesNanos = Collections.synchronizedList(new ArrayList<>());
+
+        Executor timedExecutor = task -> {
+            long submitted = System.nanoTime();
+            databaseExecutor.execute(() -> {
+                task.run();
+                latenciesNanos.add(System.nanoTime() - submitted);
+            });
+        };
+        ScanIngestor ingestor = new ScanIngestor(db.signalDao(), timedExecutor);
+
+        long bytesBefore = databaseSizeBytes(sqlite);
+        long queued = 0;
+        int batches = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < scans; i++) {
+            DriveSimulator.Scan scan = simulator.nextScan();
+            int count = ingestor.ingest(scan.results, scan.latitude, scan.longitude);
+            if (count > 0) batches++;
+            queued += count;
+        }
+
+        // Wait for every queued batch to commit
+        databaseExecutor.shutdown();
+        assertTrue(databaseExecutor.awaitTermination(60, TimeUnit.SECONDS));
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long stored = count(sqlite);
+        long bytesAfter = databaseSizeBytes(sqlite);
+
+        List<Long> sorted = new ArrayList<>(latenciesNanos);
+        Collections.sort(sorted);
+        double p50Ms = percentile(sorted, 0.50) / 1e6;
+        double p99Ms = percentile(sorted, 0.99) / 1e6;
+        double rowsPerSecond = stored / elapsedSeconds;
+        double bytesPerRow = (bytesAfter - bytesBefore) / (double) stored;
+
+        assertEquals(name, queued, stored);
+        assertTrue(name + ": nothing was stored", stored > 0);
+        assertEquals(name + ": every queued batch committed", batches, sorted.size());
+        assertTrue(name + ": database grew " + bytesPerRow + " bytes per row", bytesPerRow <= MAX_BYTES_PER_ROW);
+
+        if (!BENCHMARKS) return;
+        System.out.println(String.format(Locale.US,
+                "%s: %d rows in %d batches, %.0f rows/s, %.1f bytes/row, latency p50 %.1f ms, p99 %.1f ms",
+                name, stored, batches, rowsPerSecond, bytesPerRow, p50Ms, p99Ms));
+        assertTrue(name + ": throughput regressed: " + rowsPerSecond + " rows/s", rowsPerSecond >= MIN_ROWS_PER_SECOND);
+        assertTrue(name + ": latency regressed: p99 " + p99Ms + " ms", p99Ms <= MAX_P99_LATENCY_MS);
+    }
+
+    private static long count(SupportSQLiteDatabase sqlite) {
+        try (Cursor cursor = sqlite.query("SELECT COUNT(*) FROM measurements")) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    private static long databaseSizeBytes(SupportSQLiteDatabase sqlite) {
+        long pages;
+        long pageSize;
+        try (Cursor cursor = sqlite.query("PRAGMA page_count")) {
+            cursor.moveToFirst();
+            pages = cursor.getLong(0);
+        }
+        try (Cursor cursor = sqlite.query("PRAGMA page_size")) {
+            cursor.moveToFirst();
+            pageSize = cursor.getLong(0);
+        }
+        return pages * pageSize;
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) return 0;
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.wifisignaltracker;
+
+import android.view.Choreographer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class JankTrackerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private long now = 0;
+    private double refreshRateHz = 60;
+    private final JankTracker tracker = new JankTracker(Choreographer.getInstance(), () -> now, () -> refreshRateHz);
+
+    @Test
+    public void testFramesOverBudgetAreCounted() {
+        tracker.recordFrame(16 * MS);
+        // Vsync jitter, not a missed frame
+        tracker.recordFrame(20 * MS);
+        tracker.recordFrame(40 * MS);
+        tracker.recordFrame(900 * MS);
+
+        assertEquals(2, tracker.getSlowFrames());
+        String report = tracker.report();
+        assertTrue(report, report.contains("Frames: 4, slow (> 25.0 ms)"));
+        assertTrue(report, report.contains("frozen: 1"));
+        assertTrue(report, report.contains("worst: 900.0 ms"));
+    }
+
+    @Test
+    public void testBudgetFollowsDisplayRefreshRate() {
+        refreshRateHz = 120;
+        tracker.start();
+        tracker.stop();
+
+        // A normal frame at 60 Hz is a missed one at 120 Hz
+        tracker.recordFrame(8 * MS);
+        tracker.recordFrame(16 * MS);
+
+        assertEquals(1, tracker.getSlowFrames());
+        assertTrue(tracker.report(), tracker.report().contains("slow (> 12.5 ms)"));
+    }
+
+    @Test
+    public void testOnlySlowRefreshesContributeToBreakdown() {
+        JankTracker.Refresh fast = tracker.beginRefresh("summary");
+        fast.beginStage(JankTracker.STAGE_CLEAR);
+        now += 2 * MS;
+        fast.finish(10);
+        assertEquals(0, tracker.getSlowRefreshes());
+
+        JankTracker.Refresh slow = tracker.beginRefresh("summary");
+        slow.beginStage(JankTracker.STAGE_CLEAR);
+        now += 3 * MS;
+        slow.beginStage(JankTracker.STAGE_SUMMARY);
+        now += 25 * MS;
+        slow.beginStage(JankTracker.STAGE_CLUSTER);
+        now += 1 * MS;
+        slow.finish(5000);
+
+        assertEquals(1, tracker.getSlowRefreshes());
+        String report = tracker.report();
+        assertTrue(report, report.contains("Refreshes: 2, slow: 1, worst: 29.0 ms"));
+        assertTrue(report, report.contains("showSummaryView: 25.0 ms"));
+        assertTrue(report, report.contains("clearMapVisuals: 3.0 ms"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.wifisignaltracker;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import java.io.File;
+
+/**
+ * Creates database files in the version 3 layout (REAL coordinates, millisecond timestamps),
+ * as written by releases before the compact encoding.
+ */
+final class LegacyDatabase {
+
+    static final int VERSION = 3;
+
+    private LegacyDatabase() {
+    }
+
+    static SQLiteDatabase create(File file) {
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        SQLiteDatabase database = SQLiteDatabase.openOrCreateDatabase(file, null);
+        // Rollback-journal mode, so the closed file is complete without a -wal file
+        database.disableWriteAheadLogging();
+        database.execSQL("CREATE TABLE IF NOT EXISTS `measurements` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`latitude` REAL NOT NULL, `longitude` REAL NOT NULL, `signalStrength` INTEGER NOT NULL, " +
+                "`timestamp` INTEGER NOT NULL, `ssid` TEXT)");
+        database.execSQL("CREATE INDEX IF NOT EXISTS `index_measurements_ssid_timestamp` " +
+                "ON `measurements` (`ssid`, `timestamp`)");
+        database.execSQL("CREATE INDEX IF NOT EXISTS `index_measurements_latitude_longitude_ssid` " +
+                "ON `measurements` (`latitude`, `longitude`, `ssid`)");
+        database.setVersion(VERSION);
+        return database;
+    }
+
+    static void insert(SQLiteDatabase database, double lat, double lng, int rssi, String ssid, long timestampMillis) {
+        database.execSQL("INSERT INTO measurements (latitude, longitude, signalStrength, timestamp, ssid) " +
+                "VALUES (?, ?, ?, ?, ?)", new Object[] {lat, lng, rssi, timestampMillis, ssid});
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.wifisignaltracker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshSchedulerTest {
+
+    /**
+     * Executor that queues tasks until explicitly drained, so tests control interleaving.
+     */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    @Test
+    public void testBurstCoalescesToOneRunningAndOnePending() {
+        ManualExecutor background = new ManualExecutor();
+        ManualExecutor ui = new ManualExecutor();
+        RefreshScheduler scheduler = new RefreshScheduler(background, ui);
+        List<String> loaded = new ArrayList<>();
+        List<String> applied = new ArrayList<>();
+
+        for (String name : new String[] {"a", "b", "c", "d"}) {
+            scheduler.request(generation -> {
+                loaded.add(name);
+                return () -> applied.add(name);
+            });
+        }
+
+        // Only the first refresh was submitted; the rest collapsed into a single pending slot
+        assertEquals(1, background.tasks.size());
+        background.runAll();
+        ui.runAll();
+
+        // "a" was superseded before it started, so only the newest request queried and rendered
+        assertEquals(List.of("d"), loaded);
+        assertEquals(List.of("d"), applied);
+    }
+
+    @Test
+    public void testStaleResultIsDiscardedBeforeUi() {
+        ManualExecutor background = new ManualExecutor();
+        ManualExecutor ui = new ManualExecutor();
+        RefreshScheduler scheduler = new RefreshScheduler(background, ui);
+        List<String> applied = new ArrayList<>();
+
+        scheduler.request(generation -> () -> applied.add("first"));
+        background.tasks.remove(0).run();
+        assertEquals(1, ui.tasks.size());
+
+        // A newer request arrives while the first result is waiting for the UI thread
+        scheduler.request(generation -> () -> applied.add("second"));
+        ui.runAll();
+        assertTrue(applied.isEmpty());
+
+        background.runAll();
+        ui.runAll();
+        assertEquals(List.of("second"), applied);
+    }
+
+    @Test
+    public void testShutdownDropsEverything() {
+        ManualExecutor background = new ManualExecutor();
+        ManualExecutor ui = new ManualExecutor();
+        RefreshScheduler scheduler = new RefreshScheduler(background, ui);
+        List<String> applied = new ArrayList<>();
+
+        scheduler.request(generation -> () -> applied.add("first"));
+        scheduler.shutdown();
+        scheduler.request(generation -> () -> applied.add("second"));
+        background.runAll();
+        ui.runAll();
+
+        assertTrue(applied.isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.wifisignaltracker;
+
+import android.net.wifi.ScanResult;
+
+import androidx.room.Room;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowScanResult;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class ScanIngestorTest {
+
+    private AppDatabase db;
+    private ScanIngestor ingestor;
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(RuntimeEnvironment.getApplication(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        ingestor = new ScanIngestor(db.signalDao(), Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void testRepeatedDeliveryIsStoredOnce() {
+        List<ScanResult> delivery = List.of(result("Home", "02:00:00:00:00:01", -50, 1000));
+
+        assertEquals(1, ingestor.ingest(delivery, 10.0, 20.0));
+        assertEquals(0, ingestor.ingest(delivery, 10.0, 20.0));
+        assertEquals(1, db.signalDao().getMeasurementsBySsid("Home").size());
+    }
+
+    @Test
+    public void testOnlyNewerSightingsAreStored() {
+        ingestor.ingest(List.of(
+                result("Home", "02:00:00:00:00:01", -50, 1000),
+                result("Cafe", "02:00:00:00:00:02", -60, 1000)), 10.0, 20.0);
+
+        // Next delivery: Home was rescanned, Cafe is a stale cached entry
+        int stored = ingestor.ingest(List.of(
+                result("Home", "02:00:00:00:00:01", -55, 2000),
+                result("Cafe", "02:00:00:00:00:02", -60, 1000)), 10.1, 20.1);
+
+        assertEquals(1, stored);
+        assertEquals(2, db.signalDao().getMeasurementsBySsid("Home").size());
+        assertEquals(1, db.signalDao().getMeasurementsBySsid("Cafe").size());
+    }
+
+    @Test
+    public void testHiddenAndWeakNetworksAreSkipped() {
+        int stored = ingestor.ingest(List.of(
+                result("", "02:00:00:00:00:03", -50, 1000),
+                result("Faint", "02:00:00:00:00:04", ScanIngestor.MIN_SIGNAL_STRENGTH_DBM - 1, 1000)),
+                10.0, 20.0);
+
+        assertEquals(0, stored);
+    }
+
+    private static ScanResult result(String ssid, String bssid, int level, long timestampMicros) {
+        ScanResult result = ShadowScanResult.newInstance(ssid, bssid, "[ESS]", level, 2437);
+        result.timestamp = timestampMicros;
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.wifisignaltracker;
+
+import android.content.Context;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out a recording {@link FusedLocationProviderClient}: every request is kept, and the
+ * registered callback can be fed fixes by the test. The client is a dynamic proxy so it does
+ * not depend on the exact method set of the Play Services interface.
+ * Needs {@code instrumentedPackages = "com.google.android.gms.location"} next to the shadow.
+ */
+@Implements(LocationServices.class)
+public class ShadowLocationServices {
+
+    static final List<LocationRequest> requests = new ArrayList<>();
+    static LocationCallback callback;
+    static int removals;
+
+    private static final FusedLocationProviderClient CLIENT = (FusedLocationProviderClient) Proxy.newProxyInstance(
+            FusedLocationProviderClient.class.getClassLoader(),
+            new Class<?>[] {FusedLocationProviderClient.class},
+            (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    switch (method.getName()) {
+                        case "equals": return proxy == args[0];
+                        case "hashCode": return System.identityHashCode(proxy);
+                        default: return "FakeFusedLocationProviderClient";
+                    }
+                }
+                if (method.getName().equals("requestLocationUpdates")) {
+                    for (Object arg : args) {
+                        if (arg instanceof LocationRequest) requests.add((LocationRequest) arg);
+                        if (arg instanceof LocationCallback) callback = (LocationCallback) arg;
+                    }
+                } else if (method.getName().equals("removeLocationUpdates")) {
+                    removals++;
+                }
+                return Task.class.isAssignableFrom(method.getReturnType()) ? Tasks.forResult(null) : null;
+            });
+
+    @Implementation
+    protected static FusedLocationProviderClient getFusedLocationProviderClient(Context context) {
+        return CLIENT;
+    }
+
+    static void reset() {
+        requests.clear();
+        callback = null;
+        removals = 0;
+    }
+
+    static LocationRequest lastRequest() {
+        return requests.get(requests.size() - 1);
+    }
+}
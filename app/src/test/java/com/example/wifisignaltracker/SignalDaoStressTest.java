@@ -0,0 +1,198 @@
+package com.example.wifisignaltracker;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the DAO at realistic scale.
+ * The query-plan tests fail whenever a hot-path query falls back to a full table scan.
+ * The latency benchmark seeds an in-memory database with {@code -PstressRows} rows (default 1M)
+ * and holds every DAO read to a budget. Wall-clock budgets are unreliable on shared CI machines,
+ * so it only runs with {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SignalDaoStressTest {
+
+    private static final boolean BENCHMARKS = Boolean.getBoolean("benchmarks");
+    private static final int ROWS = Integer.getInteger("stressRows", 1_000_000);
+    private static final int SSID_COUNT = 5000;
+
+    // Latency budgets in milliseconds, generous enough for a CI machine under Robolectric
+    private static final long BUDGET_BY_SSID_MS = 100;
+    private static final long BUDGET_IN_BOUNDS_MS = 1000;
+    private static final long BUDGET_IN_BOUNDS_ANTIMERIDIAN_MS = 1000;
+    private static final long BUDGET_UNIQUE_SSIDS_MS = 2000;
+    private static final long BUDGET_CENTROIDS_IN_BOUNDS_MS = 5000;
+
+    private static final Pattern NAMED_PARAM = Pattern.compile(":(\\w+)");
+    // Older SQLite says "SCAN TABLE measurements AS m", newer just "SCAN measurements" or "SCAN m".
+    // Walking a whole index is still linear in table size, so any SCAN counts.
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (TABLE )?(measurements|m)\\b");
+
+    private AppDatabase db;
+    private SupportSQLiteDatabase sqlite;
+
+    @Before
+    public void setUp() {
+        db = Room.inMemoryDatabaseBuilder(RuntimeEnvironment.getApplication(), AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        sqlite = db.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void testMeasurementsBySsidUsesIndex() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ssid", "Net-1");
+        assertNoFullScan(SignalDao.MEASUREMENTS_BY_SSID_QUERY, params);
+    }
+
+    @Test
+    public void testMeasurementsBySsidAfterUsesIndex() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ssid", "Net-1");
+        params.put("afterId", 1000);
+        assertNoFullScan(SignalDao.MEASUREMENTS_BY_SSID_AFTER_QUERY, params);
+    }
+
+    @Test
+    public void testSsidsInBoundsUsesIndex() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("minLat", 47.4);
+        params.put("maxLat", 47.5);
+        params.put("minLng", -122.4);
+        params.put("maxLng", -122.3);
+        assertNoFullScan(SignalDao.SSIDS_IN_BOUNDS_QUERY, params);
+    }
+
+    @Test
+    public void testSsidsInBoundsAcrossAntimeridianUsesIndex() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("minLat", -10.0);
+        params.put("maxLat", 10.0);
+        params.put("minLng", 179.5);
+        params.put("maxLng", -179.5);
+        assertNoFullScan(SignalDao.SSIDS_IN_BOUNDS_QUERY, params);
+    }
+
+    @Test
+    public void testCentroidsInBoundsUsesIndex() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("minLat", 47.4);
+        params.put("maxLat", 47.5);
+        params.put("minLng", -122.4);
+        params.put("maxLng", -122.3);
+        assertNoFullScan(SignalDao.CENTROIDS_IN_BOUNDS_QUERY, params);
+    }
+
+    @Test
+    public void testLatencyBudgetsAtScale() {
+        assumeTrue("Benchmark, run with -Pbenchmarks", BENCHMARKS);
+        long seedStart = System.nanoTime();
+        seed(ROWS);
+        System.out.println(String.format(Locale.US, "Seeded %d rows in %.1fs",
+                ROWS, (System.nanoTime() - seedStart) / 1e9));
+
+        SignalDao dao = db.signalDao();
+
+        List<SignalMeasurement> bySsid = timed("getMeasurementsBySsid", BUDGET_BY_SSID_MS,
+                () -> dao.getMeasurementsBySsid("Net-42"));
+        assertEquals(ROWS / SSID_COUNT, bySsid.size());
+
+        // A city-block sized viewport, the common case while panning
+        List<String> inBounds = timed("getUniqueSsidsInBounds", BUDGET_IN_BOUNDS_MS,
+                () -> dao.getUniqueSsidsInBounds(47.10, 47.12, -122.40, -122.38));
+        assertFalse(inBounds.isEmpty());
+
+        List<String> acrossAntimeridian = timed("getUniqueSsidsInBounds (antimeridian)",
+                BUDGET_IN_BOUNDS_ANTIMERIDIAN_MS,
+                () -> dao.getUniqueSsidsInBounds(47.10, 47.12, 179.99, -179.99));
+        assertFalse(acrossAntimeridian.isEmpty());
+
+        List<SsidCentroid> centroids = timed("getCentroidsInBounds", BUDGET_CENTROIDS_IN_BOUNDS_MS,
+                () -> dao.getCentroidsInBounds(47.10, 47.12, -122.40, -122.38));
+        assertEquals(inBounds.size(), centroids.size());
+
+        List<String> unique = timed("getUniqueSsids", BUDGET_UNIQUE_SSIDS_MS, dao::getUniqueSsids);
+        assertEquals(SSID_COUNT, unique.size());
+    }
+
+    /**
+     * Bulk-load synthetic rows with a recursive CTE so seeding stays inside SQLite.
+     * Points are spread over a 1x1 degree area, with every 100th row placed on the antimeridian.
+     */
+    private void seed(int rows) {
+        sqlite.execSQL("WITH RECURSIVE seq(x) AS (SELECT 0 UNION ALL SELECT x + 1 FROM seq WHERE x < " + (rows - 1) + ") " +
+                "INSERT INTO measurements (latitudeE7, longitudeE7, signalStrength, timestampSeconds, ssid) " +
+                "SELECT 470000000 + ((x * 7919) % 100000) * 100, " +
+                "       CASE WHEN x % 100 = 0 THEN 1799950000 ELSE -1225000000 + ((x * 104729) % 100000) * 100 END, " +
+                "       -30 - ((x * 31) % 60), " +
+                "       1700000000 + x, " +
+                "       'Net-' || (x % " + SSID_COUNT + ") " +
+                "FROM seq");
+    }
+
+    private static <T> T timed(String label, long budgetMs, Supplier<T> query) {
+        long start = System.nanoTime();
+        T result = query.get();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(String.format(Locale.US, "%s: %d ms (budget %d ms)", label, elapsedMs, budgetMs));
+        assertTrue(label + " took " + elapsedMs + " ms, budget " + budgetMs + " ms", elapsedMs <= budgetMs);
+        return result;
+    }
+
+    /**
+     * Run EXPLAIN QUERY PLAN on a Room query and fail if any step scans the measurements table
+     * or one of its indices end to end. Named parameters are rewritten to positional ones.
+     */
+    private void assertNoFullScan(String roomSql, Map<String, Object> params) {
+        StringBuffer sql = new StringBuffer();
+        List<Object> args = new ArrayList<>();
+        Matcher matcher = NAMED_PARAM.matcher(roomSql);
+        while (matcher.find()) {
+            args.add(params.get(matcher.group(1)));
+            matcher.appendReplacement(sql, "?");
+        }
+        matcher.appendTail(sql);
+
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = sqlite.query("EXPLAIN QUERY PLAN " + sql, args.toArray())) {
+            int detailColumn = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detailColumn));
+            }
+        }
+
+        for (String step : plan) {
+            assertFalse("Full scan in plan " + plan + " for: " + roomSql, FULL_SCAN.matcher(step).find());
+        }
+    }
+}
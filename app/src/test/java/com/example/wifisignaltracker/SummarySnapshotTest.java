@@ -0,0 +1,103 @@
+package com.example.wifisignaltracker;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class SummarySnapshotTest {
+
+    private static final int MAGIC = 0x57534e50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteThenReadRoundTrips() throws IOException {
+        File file = folder.newFile();
+        SummarySnapshot snapshot = snapshot(-55);
+        snapshot.writeTo(file);
+
+        SummarySnapshot read = SummarySnapshot.readFrom(file);
+
+        assertEquals(snapshot, read);
+        assertEquals(47.1234567, read.cameraLatitude, 0.0);
+        assertEquals(15.5f, read.cameraZoom, 0.0f);
+        assertEquals(2, read.items.size());
+        assertEquals("Home", read.items.get(0).getSnippet());
+        assertEquals(WifiClusterItem.NO_INSTANCE, read.items.get(0).getInstanceId());
+        assertEquals(-55, read.items.get(0).getMaxRssi());
+        assertEquals(42, read.items.get(1).getInstanceId());
+        assertEquals(2, read.items.get(1).getInstanceNumber());
+        assertEquals(-122.7654321, read.items.get(1).getPosition().longitude, 0.0);
+    }
+
+    @Test
+    public void testEqualityFollowsStoredFields() {
+        assertEquals(snapshot(-55), snapshot(-55));
+        assertEquals(snapshot(-55).hashCode(), snapshot(-55).hashCode());
+        assertNotEquals(snapshot(-55), snapshot(-56));
+    }
+
+    @Test
+    public void testMissingFileReadsAsNull() throws IOException {
+        assertNull(SummarySnapshot.readFrom(new File(folder.getRoot(), "absent.bin")));
+    }
+
+    @Test
+    public void testBadMagicReadsAsNull() throws IOException {
+        File file = folder.newFile();
+        writeHeader(file, 0x12345678, 3);
+
+        assertNull(SummarySnapshot.readFrom(file));
+    }
+
+    @Test
+    public void testOldVersionReadsAsNull() throws IOException {
+        File file = folder.newFile();
+        writeHeader(file, MAGIC, 2);
+
+        assertNull(SummarySnapshot.readFrom(file));
+    }
+
+    @Test
+    public void testTruncatedFileReadsAsNull() throws IOException {
+        File file = folder.newFile();
+        snapshot(-55).writeTo(file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertNull(SummarySnapshot.readFrom(file));
+    }
+
+    private static SummarySnapshot snapshot(int homeRssi) {
+        return new SummarySnapshot(47.1234567, -122.5, 15.5f, List.of(
+                WifiClusterItem.suspectedLocation("Home", 47.12, -122.51, homeRssi),
+                WifiClusterItem.apInstance("Chain", 42, 2, 47.2, -122.7654321, -70)));
+    }
+
+    private static void writeHeader(File file, int magic, int version) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeInt(0); // Camera position, as far as either version agrees
+            out.writeInt(0);
+            out.writeFloat(10f);
+            out.writeInt(0);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.wifisignaltracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class SurveyMergerTest {
+
+    private static final String SOURCE_DB_NAME = "merge_source_test_db";
+    private static final String TARGET_DB_NAME = "merge_target_test_db";
+    private static final String COPY_DB_NAME = "merge_copy_test_db";
+    // The large merge is a wall-clock benchmark, run with -Pbenchmarks (and optionally -PmergeRows)
+    private static final boolean BENCHMARKS = Boolean.getBoolean("benchmarks");
+    private static final int LARGE_ROWS = Integer.getInteger("mergeRows", 1_000_000);
+    private static final long LARGE_MERGE_BUDGET_MS = 30_000;
+
+    private Context context;
+    private AppDatabase target;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        // A file, as the merge attaches it to its own connection
+        target = Room.databaseBuilder(context, AppDatabase.class, TARGET_DB_NAME)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        target.close();
+        context.deleteDatabase(TARGET_DB_NAME);
+        context.deleteDatabase(SOURCE_DB_NAME);
+        context.deleteDatabase(COPY_DB_NAME);
+    }
+
+    @Test
+    public void testMergeSkipsExistingAndInternalDuplicates() {
+        target.signalDao().insertAll(List.of(
+                measurement(10.0, 20.0, -50, "Shared", 1000),
+                measurement(10.0, 20.0, -60, "LocalOnly", 1000)));
+
+        File source = createSource(List.of(
+                // Same SSID, time and signal, position within rounding: already present
+                measurement(10.000001, 20.000001, -50, "Shared", 1000),
+                // New rows
+                measurement(11.0, 21.0, -40, "Remote", 2000),
+                measurement(11.0, 21.0, -45, "Remote", 3000),
+                // Exact duplicate of the row above within the source itself
+                measurement(11.0, 21.0, -45, "Remote", 3000)));
+
+        SurveyMerger.Result result = new SurveyMerger(target).merge(source);
+
+        assertEquals(2, result.merged);
+        assertEquals(2, result.skipped);
+        assertEquals(4, count());
+        assertEquals(2, target.signalDao().getMeasurementsBySsid("Remote").size());
+    }
+
+    @Test
+    public void testKeepsDistinctReadingsWithinTheSameSecond() {
+        target.signalDao().insertAll(List.of(measurement(10.0, 20.0, -50, "Shared", 1000)));
+
+        // Scans of two access points sharing an SSID, both stored in the same second and place
+        File source = createSource(List.of(
+                measurement(10.0, 20.0, -50, "Shared", 1000),
+                measurement(10.0, 20.0, -71, "Shared", 1000),
+                measurement(11.0, 21.0, -40, "Remote", 2000),
+                measurement(11.0, 21.0, -65, "Remote", 2000)));
+
+        SurveyMerger.Result result = new SurveyMerger(target).merge(source);
+
+        assertEquals(3, result.merged);
+        assertEquals(1, result.skipped);
+        assertEquals(2, target.signalDao().getMeasurementsBySsid("Shared").size());
+        assertEquals(2, target.signalDao().getMeasurementsBySsid("Remote").size());
+    }
+
+    @Test
+    public void testMergingTwiceIsIdempotent() {
+        File source = createSource(List.of(
+                measurement(11.0, 21.0, -40, "Remote", 2000),
+                measurement(12.0, 22.0, -70, "Other", 2000)));
+
+        SurveyMerger merger = new SurveyMerger(target);
+        assertEquals(2, merger.merge(source).merged);
+
+        SurveyMerger.Result second = merger.merge(source);
+        assertEquals(0, second.merged);
+        assertEquals(2, second.skipped);
+        assertEquals(2, count());
+    }
+
+    @Test
+    public void testMergesSourceInLegacyEncoding() {
+        target.signalDao().insertAll(List.of(measurement(10.0, 20.0, -50, "Shared", 1000)));
+
+        File source = context.getDatabasePath(SOURCE_DB_NAME);
+        SQLiteDatabase legacy = LegacyDatabase.create(source);
+        // Same row as the target's once converted to E7 and whole seconds
+        LegacyDatabase.insert(legacy, 10.00000001, 20.0, -50, "Shared", 1400);
+        LegacyDatabase.insert(legacy, 11.123456789, 21.0, -45, "Remote", 2999);
+        legacy.close();
+
+        SurveyMerger.Result result = new SurveyMerger(target).merge(source);
+
+        assertEquals(1, result.merged);
+        assertEquals(1, result.skipped);
+        SignalMeasurement remote = target.signalDao().getMeasurementsBySsid("Remote").get(0);
+        assertEquals(11.1234568, remote.getLatitude(), 0.0);
+        assertEquals(21.0, remote.getLongitude(), 0.0);
+        assertEquals(-45, remote.getSignalStrength());
+        assertEquals(2000, remote.getTimestamp());
+    }
+
+    @Test
+    public void testMergesRowsStillInWriteAheadLog() throws IOException {
+        // Exported while the other device had the database open: recent rows only live in the -wal
+        AppDatabase sourceDb = Room.databaseBuilder(context, AppDatabase.class, SOURCE_DB_NAME)
+                .allowMainThreadQueries()
+                .build();
+        sourceDb.signalDao().insertAll(List.of(
+                measurement(11.0, 21.0, -40, "Remote", 2000),
+                measurement(12.0, 22.0, -70, "Other", 2000)));
+        File copy = copyOf(context.getDatabasePath(SOURCE_DB_NAME), true);
+        sourceDb.close();
+
+        SurveyMerger.Result result = new SurveyMerger(target).merge(copy);
+
+        assertEquals(2, result.merged);
+        assertEquals(2, count());
+        // Merging must not have touched the journal mode of the live database
+        assertEquals("wal", journalMode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsWriteAheadLogDatabaseWithoutItsLog() throws IOException {
+        AppDatabase sourceDb = Room.databaseBuilder(context, AppDatabase.class, SOURCE_DB_NAME)
+                .allowMainThreadQueries()
+                .build();
+        sourceDb.signalDao().insertAll(List.of(measurement(11.0, 21.0, -40, "Remote", 2000)));
+        File copy = copyOf(context.getDatabasePath(SOURCE_DB_NAME), false);
+        sourceDb.close();
+
+        new SurveyMerger(target).merge(copy);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsForeignDatabase() {
+        SupportSQLiteDatabase other = Room.databaseBuilder(context, AppDatabase.class, SOURCE_DB_NAME)
+                .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                .build().getOpenHelper().getWritableDatabase();
+        other.execSQL("DROP TABLE measurements");
+        other.close();
+
+        new SurveyMerger(target).merge(context.getDatabasePath(SOURCE_DB_NAME));
+    }
+
+    @Test
+    public void testLargeMergeIsFast() {
+        assumeTrue("Benchmark, run with -Pbenchmarks", BENCHMARKS);
+        // The target already holds half of the source's rows
+        seed(target.getOpenHelper().getWritableDatabase(), LARGE_ROWS / 2);
+
+        AppDatabase sourceDb = Room.databaseBuilder(context, AppDatabase.class, SOURCE_DB_NAME)
+                .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                .build();
+        seed(sourceDb.getOpenHelper().getWritableDatabase(), LARGE_ROWS);
+        sourceDb.close();
+
+        long start = System.nanoTime();
+        SurveyMerger.Result result = new SurveyMerger(target).merge(context.getDatabasePath(SOURCE_DB_NAME));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println(String.format(Locale.US, "Merged %d, skipped %d of %d rows in %d ms",
+                result.merged, result.skipped, LARGE_ROWS, elapsedMs));
+        assertEquals(LARGE_ROWS - LARGE_ROWS / 2, result.merged);
+        assertEquals(LARGE_ROWS / 2, result.skipped);
+        assertTrue("Merge took " + elapsedMs + " ms", elapsedMs <= LARGE_MERGE_BUDGET_MS);
+    }
+
+    /**
+     * Create a source database in rollback-journal mode, as a closed database file is exported.
+     */
+    private File createSource(List<SignalMeasurement> measurements) {
+        AppDatabase sourceDb = Room.databaseBuilder(context, AppDatabase.class, SOURCE_DB_NAME)
+                .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                .allowMainThreadQueries()
+                .build();
+        sourceDb.signalDao().insertAll(new ArrayList<>(measurements));
+        sourceDb.close();
+        return context.getDatabasePath(SOURCE_DB_NAME);
+    }
+
+    private static void seed(SupportSQLiteDatabase database, int rows) {
+        database.execSQL("WITH RECURSIVE seq(x) AS (SELECT 0 UNION ALL SELECT x + 1 FROM seq WHERE x < " + (rows - 1) + ") " +
+                "INSERT INTO measurements (latitudeE7, longitudeE7, signalStrength, timestampSeconds, ssid) " +
+                "SELECT 470000000 + (x % 1000) * 1000, -1220000000 - (x / 1000) * 1000, " +
+                "       -30 - (x % 60), 1700000000 + x, 'Net-' || (x % 5000) " +
+                "FROM seq");
+    }
+
+    /**
+     * Copy a database file, and optionally its -wal file, as a file manager would export them.
+     */
+    private File copyOf(File database, boolean withWal) throws IOException {
+        File copy = context.getDatabasePath(COPY_DB_NAME);
+        Files.copy(database.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        File wal = new File(database.getPath() + "-wal");
+        assertTrue(wal.length() > 0);
+        if (withWal) {
+            Files.copy(wal.toPath(), new File(copy.getPath() + "-wal").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy;
+    }
+
+    private String journalMode() {
+        try (Cursor cursor = target.getOpenHelper().getWritableDatabase().query("PRAGMA journal_mode")) {
+            cursor.moveToFirst();
+            return cursor.getString(0);
+        }
+    }
+
+    private long count() {
+        try (Cursor cursor = target.getOpenHelper().getReadableDatabase().query("SELECT COUNT(*) FROM measurements")) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    private static SignalMeasurement measurement(double lat, double lng, int rssi, String ssid, long timestamp) {
+        SignalMeasurement m = new SignalMeasurement(lat, lng, rssi, ssid);
+        m.setTimestamp(timestamp);
+        return m;
+    }
+}
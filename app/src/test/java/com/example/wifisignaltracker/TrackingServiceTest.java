@@ -0,0 +1,191 @@
+package com.example.wifisignaltracker;
+
+import android.Manifest;
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiManager;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowScanResult;
+import org.robolectric.shadows.ShadowWifiManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Scan-coupled location: the GPS is woken for a window before each scan, the scan waits for a
+ * fresh and accurate fix (or the warm-up timeout), and the results close the window again.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowLocationServices.class, instrumentedPackages = "com.google.android.gms.location")
+public class TrackingServiceTest {
+
+    private Application application;
+    private ShadowWifiManager wifi;
+    private ServiceController<TrackingService> controller;
+
+    @Before
+    public void setUp() {
+        ShadowLocationServices.reset();
+        application = RuntimeEnvironment.getApplication();
+        shadowOf(application).grantPermissions(Manifest.permission.ACCESS_FINE_LOCATION);
+        wifi = shadowOf((WifiManager) application.getSystemService(Context.WIFI_SERVICE));
+        ScanResult result = ShadowScanResult.newInstance("Home", "02:00:00:00:00:01", "[ESS]", -50, 2437);
+        result.timestamp = 1000;
+        wifi.setScanResults(List.of(result));
+
+        Intent intent = new Intent(application, TrackingService.class)
+                .putExtra(TrackingService.EXTRA_SCAN_COUPLED_LOCATION, true);
+        controller = Robolectric.buildService(TrackingService.class, intent).create().startCommand(0, 1);
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    @Test
+    public void testWindowWakesGpsOnlyAroundTheScan() {
+        // Until the first window only passive fixes are requested
+        assertEquals(Priority.PRIORITY_PASSIVE, ShadowLocationServices.lastRequest().getPriority());
+
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(Priority.PRIORITY_HIGH_ACCURACY, ShadowLocationServices.lastRequest().getPriority());
+
+        deliverFix(SystemClock.elapsedRealtimeNanos(), 10f);
+        // The scan is running; the GPS stays on until its results arrive
+        assertEquals(Priority.PRIORITY_HIGH_ACCURACY, ShadowLocationServices.lastRequest().getPriority());
+
+        deliverScanResults();
+        assertEquals(Priority.PRIORITY_PASSIVE, ShadowLocationServices.lastRequest().getPriority());
+
+        TrackingService.FixCounters counters = TrackingService.getFixCounters();
+        assertEquals(1, counters.getRequested());
+        assertEquals(1, counters.getReceived());
+        assertEquals(1, counters.getUsed());
+        assertEquals(0, counters.getRejected());
+        assertEquals(1, counters.getMeasurementsStored());
+
+        // The next window opens on the scan schedule
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(30));
+        assertEquals(Priority.PRIORITY_HIGH_ACCURACY, ShadowLocationServices.lastRequest().getPriority());
+    }
+
+    @Test
+    public void testFixFromBeforeTheWindowDoesNotStartTheScan() {
+        shadowOf(Looper.getMainLooper()).idle();
+        long windowOpened = SystemClock.elapsedRealtimeNanos();
+
+        // E.g. a cached passive fix delivered when the high-accuracy request starts
+        deliverFix(windowOpened - 1, 10f);
+        assertEquals(1, TrackingService.getFixCounters().getRejected());
+        assertEquals(Priority.PRIORITY_HIGH_ACCURACY, ShadowLocationServices.lastRequest().getPriority());
+
+        deliverFix(SystemClock.elapsedRealtimeNanos(), 10f);
+        deliverScanResults();
+
+        assertEquals(Priority.PRIORITY_PASSIVE, ShadowLocationServices.lastRequest().getPriority());
+        assertEquals(1, TrackingService.getFixCounters().getUsed());
+    }
+
+    @Test
+    public void testInaccurateFixWaitsForWarmupTimeout() {
+        wifi.setStartScanSucceeds(false);
+        shadowOf(Looper.getMainLooper()).idle();
+
+        deliverFix(SystemClock.elapsedRealtimeNanos(), TrackingService.MAX_FIX_ACCURACY_M * 4);
+        assertEquals(1, TrackingService.getFixCounters().getRejected());
+        assertEquals(Priority.PRIORITY_HIGH_ACCURACY, ShadowLocationServices.lastRequest().getPriority());
+
+        // No usable fix: the warm-up timeout scans anyway, and a refused scan closes the window
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(5));
+        assertEquals(Priority.PRIORITY_PASSIVE, ShadowLocationServices.lastRequest().getPriority());
+        assertEquals(0, TrackingService.getFixCounters().getUsed());
+    }
+
+    @Test
+    public void testWindowFixMustBeFreshAndAccurate() {
+        long opened = 5_000_000_000L;
+        assertTrue(TrackingService.isWindowFix(fix(opened, 10f), opened));
+        assertFalse(TrackingService.isWindowFix(fix(opened - 1, 10f), opened));
+        assertFalse(TrackingService.isWindowFix(fix(opened, TrackingService.MAX_FIX_ACCURACY_M + 1), opened));
+        Location withoutAccuracy = new Location("fused");
+        withoutAccuracy.setElapsedRealtimeNanos(opened);
+        assertFalse(TrackingService.isWindowFix(withoutAccuracy, opened));
+    }
+
+    @Test
+    @Config(sdk = 29) // Scan deliveries arrive as broadcasts before the Android 11 callback
+    public void testPassiveModeOnlyListensAndDropsResultsFarFromTheFix() {
+        controller.destroy();
+        ShadowLocationServices.reset();
+        Intent intent = new Intent(application, TrackingService.class)
+                .putExtra(TrackingService.EXTRA_PASSIVE_SCANS, true)
+                .putExtra(TrackingService.EXTRA_SCAN_COUPLED_LOCATION, true);
+        controller = Robolectric.buildService(TrackingService.class, intent).create().startCommand(0, 1);
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(30));
+
+        // No scan windows in passive mode, and the GPS is never woken
+        assertEquals(1, ShadowLocationServices.requests.size());
+        assertEquals(Priority.PRIORITY_PASSIVE, ShadowLocationServices.lastRequest().getPriority());
+
+        long fixNanos = SystemClock.elapsedRealtimeNanos();
+        deliverFix(fixNanos, 10f);
+        long fixMicros = fixNanos / 1000;
+        long maxOffsetMicros = TrackingService.MAX_FIX_AGE_MS * 1000;
+        ScanResult stale = ShadowScanResult.newInstance("Cached", "02:00:00:00:00:02", "[ESS]", -60, 2437);
+        stale.timestamp = fixMicros - maxOffsetMicros - 1;
+        ScanResult justBefore = ShadowScanResult.newInstance("Cafe", "02:00:00:00:00:03", "[ESS]", -70, 2437);
+        justBefore.timestamp = fixMicros - 1_000_000;
+        ScanResult fresh = ShadowScanResult.newInstance("Home", "02:00:00:00:00:01", "[ESS]", -50, 2437);
+        fresh.timestamp = fixMicros + 1000;
+        ScanResult later = ShadowScanResult.newInstance("Shop", "02:00:00:00:00:04", "[ESS]", -65, 2437);
+        later.timestamp = fixMicros + maxOffsetMicros + 1;
+        wifi.setScanResults(List.of(stale, justBefore, fresh, later));
+        deliverScanResults();
+
+        assertEquals(2, TrackingService.getFixCounters().getMeasurementsStored());
+        assertEquals(0, TrackingService.getFixCounters().getRequested());
+    }
+
+    private void deliverFix(long elapsedRealtimeNanos, float accuracy) {
+        ShadowLocationServices.callback.onLocationResult(
+                LocationResult.create(List.of(fix(elapsedRealtimeNanos, accuracy))));
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private void deliverScanResults() {
+        application.sendBroadcast(new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static Location fix(long elapsedRealtimeNanos, float accuracy) {
+        Location location = new Location("fused");
+        location.setLatitude(47.0);
+        location.setLongitude(-122.0);
+        location.setAccuracy(accuracy);
+        location.setElapsedRealtimeNanos(elapsedRealtimeNanos);
+        return location;
+    }
+}
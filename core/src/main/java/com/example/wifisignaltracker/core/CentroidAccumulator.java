@@ -0,0 +1,99 @@
+package com.example.wifisignaltracker.core;
+
+/**
+ * Running form of {@link SignalUtils#calculateWeightedCentroid}: takes measurements one at a
+ * time and gives the same centroid as the batch version would over all of them.
+ * <p>
+ * Only signals within {@link SignalUtils#SIGNAL_FILTER_THRESHOLD_DB} of the strongest count,
+ * and the strongest only ever rises, so weighted sums are kept per dBm for that window alone
+ * and the ones falling out of it are dropped. Memory stays constant however many measurements
+ * are added. Not thread-safe.
+ */
+public class CentroidAccumulator {
+
+    private static final int WINDOW = SignalUtils.SIGNAL_FILTER_THRESHOLD_DB + 1;
+
+    // Indexed by maxRssi - signal strength
+    private final double[] weights = new double[WINDOW];
+    private final double[] weightedLat = new double[WINDOW];
+    private final double[] weightedLng = new double[WINDOW];
+    private int maxRssi = SignalUtils.MIN_RSSI_FLOOR;
+    private int count;
+    private double firstLatitude;
+    private double firstLongitude;
+
+    public void add(double latitude, double longitude, int signalStrength) {
+        if (count++ == 0) {
+            firstLatitude = latitude;
+            firstLongitude = longitude;
+        }
+        if (signalStrength > maxRssi) raiseMax(signalStrength);
+
+        int slot = maxRssi - signalStrength;
+        if (slot >= WINDOW) return; // Filtered out, and stays so since the max never drops
+        double weight = Math.pow(Math.max(1, SignalUtils.WEIGHT_OFFSET + signalStrength), SignalUtils.WEIGHT_EXPONENT);
+        weights[slot] += weight;
+        weightedLat[slot] += latitude * weight;
+        weightedLng[slot] += longitude * weight;
+    }
+
+    /**
+     * Add every measurement another accumulator has seen, as if they had been added here after
+     * this one's own.
+     */
+    public void addAll(CentroidAccumulator other) {
+        if (other.count == 0) return;
+        if (count == 0) {
+            firstLatitude = other.firstLatitude;
+            firstLongitude = other.firstLongitude;
+        }
+        count += other.count;
+        if (other.maxRssi > maxRssi) raiseMax(other.maxRssi);
+
+        for (int otherSlot = 0; otherSlot < WINDOW; otherSlot++) {
+            int slot = otherSlot + maxRssi - other.maxRssi;
+            if (slot >= WINDOW) break;
+            weights[slot] += other.weights[otherSlot];
+            weightedLat[slot] += other.weightedLat[otherSlot];
+            weightedLng[slot] += other.weightedLng[otherSlot];
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the strongest signal added, or {@link SignalUtils#MIN_RSSI_FLOOR} if all were weaker
+     */
+    public int getMaxRssi() {
+        return maxRssi;
+    }
+
+    public GeoPoint getCentroid() {
+        if (count == 0) return new GeoPoint(0, 0);
+
+        double totalWeight = 0;
+        double lat = 0;
+        double lng = 0;
+        for (int slot = 0; slot < WINDOW; slot++) {
+            totalWeight += weights[slot];
+            lat += weightedLat[slot];
+            lng += weightedLng[slot];
+        }
+        // Fallback if all were filtered, as in the batch version
+        if (totalWeight == 0) return new GeoPoint(firstLatitude, firstLongitude);
+        return new GeoPoint(lat / totalWeight, lng / totalWeight);
+    }
+
+    private void raiseMax(int newMax) {
+        int shift = newMax - maxRssi;
+        for (int slot = WINDOW - 1; slot >= 0; slot--) {
+            int from = slot - shift;
+            weights[slot] = from >= 0 ? weights[from] : 0;
+            weightedLat[slot] = from >= 0 ? weightedLat[from] : 0;
+            weightedLng[slot] = from >= 0 ? weightedLng[from] : 0;
+        }
+        maxRssi = newMax;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.wifisignaltracker.core;
+
+/**
+ * A latitude/longitude pair in degrees. Core's stand-in for the Maps LatLng.
+ */
+public final class GeoPoint {
+
+    public final double latitude;
+    public final double longitude;
+
+    public GeoPoint(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GeoPoint)) return false;
+        GeoPoint other = (GeoPoint) o;
+        return Double.compare(latitude, other.latitude) == 0 && Double.compare(longitude, other.longitude) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(latitude) + Double.hashCode(longitude);
+    }
+
+    @Override
+    public String toString() {
+        return "GeoPoint(" + latitude + ", " + longitude + ")";
+    }
+}
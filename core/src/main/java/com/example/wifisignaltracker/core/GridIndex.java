@@ -0,0 +1,85 @@
+package com.example.wifisignaltracker.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform grid over planar coordinates in metres, holding integer point indices.
+ * With the cell size equal to the search radius, every neighbour of a point lies in the
+ * 3x3 block of cells around it, so a radius query touches only nearby points.
+ */
+public class GridIndex {
+
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    private static final class Cell {
+        int[] indices = new int[INITIAL_CELL_CAPACITY];
+        int size;
+
+        void add(int index) {
+            if (size == indices.length) indices = Arrays.copyOf(indices, size * 2);
+            indices[size++] = index;
+        }
+
+        boolean remove(int index) {
+            for (int i = 0; i < size; i++) {
+                if (indices[i] == index) {
+                    indices[i] = indices[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final double cellSize;
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    public GridIndex(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void insert(int index, double x, double y) {
+        cells.computeIfAbsent(key(cell(x), cell(y)), k -> new Cell()).add(index);
+    }
+
+    /**
+     * Remove an index inserted at (x, y), e.g. before inserting it again where it moved to.
+     */
+    public void remove(int index, double x, double y) {
+        long key = key(cell(x), cell(y));
+        Cell c = cells.get(key);
+        if (c != null && c.remove(index) && c.size == 0) cells.remove(key);
+    }
+
+    /**
+     * Visit every index in the cells within one cell of (x, y). Callers filter by exact distance.
+     */
+    public void forEachCandidate(double x, double y, IntConsumer consumer) {
+        long cx = cell(x);
+        long cy = cell(y);
+        for (long dx = -1; dx <= 1; dx++) {
+            for (long dy = -1; dy <= 1; dy++) {
+                Cell c = cells.get(key(cx + dx, cy + dy));
+                if (c == null) continue;
+                for (int i = 0; i < c.size; i++) {
+                    consumer.accept(c.indices[i]);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xffffffffL);
+    }
+}
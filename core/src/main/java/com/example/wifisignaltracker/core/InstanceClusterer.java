@@ -0,0 +1,247 @@
+package com.example.wifisignaltracker.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the measurements of one SSID into physical access point instances, so a network name
+ * shared by many routers (hotspot chains, default names) is not averaged across a whole city.
+ * <p>
+ * Every instance is anchored at its strongest measurement, the best guess of where its access
+ * point is, and takes measurements up to {@code reachMeters} from that anchor. Measurements of
+ * one access point are all within its range of it, so with a reach of twice the range they
+ * always find their instance. A measurement beyond the reach of every anchor starts a new one.
+ * Linking measurements to each other instead (single linkage, or DBSCAN with minPts = 2) lets
+ * a continuous drive trace chain access points kilometres apart into one instance; anchoring
+ * caps how far an instance spreads. The anchor follows the strongest signal, and when it moves
+ * within half the reach of another anchor both instances are hearing the same access point and
+ * are merged into the older one.
+ * <p>
+ * Anchors are found through a {@link GridIndex} with reach-sized cells, so adding a measurement
+ * only looks at nearby instances. Instances keep running aggregates (weighted centroid,
+ * strongest signal, bounding box) rather than their measurements; {@link #add} returns the
+ * instance a measurement joined for callers that need membership. The split depends on the
+ * order measurements arrive in, so callers must add them in a stable order.
+ * <p>
+ * Positions are projected to metres around the first measurement's latitude, which is accurate
+ * at the scale of a city. Not thread-safe.
+ */
+public class InstanceClusterer<S extends SignalSample> {
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    /**
+     * One suspected access point. Aggregates cover every measurement added to it, including
+     * those of instances merged into it.
+     */
+    public final class Instance {
+        private final int index; // Position in allInstances and key in the anchor grid
+        private final S first;
+        private final CentroidAccumulator centroid = new CentroidAccumulator();
+        private double anchorX;
+        private double anchorY;
+        private int anchorRssi;
+        private double minLatitude = Double.POSITIVE_INFINITY;
+        private double maxLatitude = Double.NEGATIVE_INFINITY;
+        private double minLongitude = Double.POSITIVE_INFINITY;
+        private double maxLongitude = Double.NEGATIVE_INFINITY;
+        private Instance mergedInto;
+
+        private Instance(int index, S first, double x, double y) {
+            this.index = index;
+            this.first = first;
+            this.anchorX = x;
+            this.anchorY = y;
+            this.anchorRssi = first.getSignalStrength();
+        }
+
+        /**
+         * @return the earliest measurement, which identifies the instance
+         */
+        public S getFirst() {
+            return first;
+        }
+
+        public int size() {
+            return centroid.getCount();
+        }
+
+        /**
+         * @return the weighted centroid of the instance's measurements, as
+         *         {@link SignalUtils#calculateWeightedCentroid} would compute it
+         */
+        public GeoPoint getCentroid() {
+            return centroid.getCentroid();
+        }
+
+        public int getMaxRssi() {
+            return centroid.getMaxRssi();
+        }
+
+        /**
+         * @return whether the bounding box of the instance's measurements overlaps the given one
+         */
+        public boolean intersects(double minLat, double maxLat, double minLng, double maxLng) {
+            return minLatitude <= maxLat && maxLatitude >= minLat
+                    && minLongitude <= maxLng && maxLongitude >= minLng;
+        }
+
+        /**
+         * @return the live instance now holding this one's measurements: itself unless it was merged
+         */
+        public Instance current() {
+            Instance instance = this;
+            while (instance.mergedInto != null) {
+                if (instance.mergedInto.mergedInto != null) {
+                    instance.mergedInto = instance.mergedInto.mergedInto; // Path halving
+                }
+                instance = instance.mergedInto;
+            }
+            return instance;
+        }
+
+        private void accumulate(S sample) {
+            centroid.add(sample.getLatitude(), sample.getLongitude(), sample.getSignalStrength());
+            minLatitude = Math.min(minLatitude, sample.getLatitude());
+            maxLatitude = Math.max(maxLatitude, sample.getLatitude());
+            minLongitude = Math.min(minLongitude, sample.getLongitude());
+            maxLongitude = Math.max(maxLongitude, sample.getLongitude());
+        }
+
+        private void absorb(Instance other) {
+            centroid.addAll(other.centroid);
+            minLatitude = Math.min(minLatitude, other.minLatitude);
+            maxLatitude = Math.max(maxLatitude, other.maxLatitude);
+            minLongitude = Math.min(minLongitude, other.minLongitude);
+            maxLongitude = Math.max(maxLongitude, other.maxLongitude);
+            other.mergedInto = this;
+        }
+    }
+
+    private final double reachMeters;
+    private final GridIndex anchors;
+    private final List<Instance> allInstances = new ArrayList<>();
+    private int samples = 0;
+    private int liveInstances = 0;
+    private double metersPerDegreeLng = Double.NaN;
+
+    // Scratch state for grid queries
+    private Instance nearest;
+    private double nearestDistanceSquared;
+    private final List<Instance> neighbors = new ArrayList<>();
+
+    /**
+     * @param reachMeters how far from an instance's strongest measurement another measurement of
+     *                    the same access point can be: twice the distance an access point is heard at
+     */
+    public InstanceClusterer(double reachMeters) {
+        this.reachMeters = reachMeters;
+        this.anchors = new GridIndex(reachMeters);
+    }
+
+    /**
+     * @return the instance the sample joined; call {@link Instance#current()} on it later, as it
+     *         may since have been merged into another
+     */
+    public Instance add(S sample) {
+        if (Double.isNaN(metersPerDegreeLng)) {
+            metersPerDegreeLng = METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(sample.getLatitude()));
+        }
+        double x = sample.getLongitude() * metersPerDegreeLng;
+        double y = sample.getLatitude() * METERS_PER_DEGREE_LAT;
+        samples++;
+
+        Instance instance = nearestAnchor(x, y);
+        if (instance == null) {
+            instance = new Instance(allInstances.size(), sample, x, y);
+            allInstances.add(instance);
+            liveInstances++;
+            anchors.insert(instance.index, x, y);
+        }
+        instance.accumulate(sample);
+
+        if (sample.getSignalStrength() > instance.anchorRssi) {
+            moveAnchor(instance, x, y, sample.getSignalStrength());
+            instance = mergeConverged(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * @return the number of measurements added
+     */
+    public int size() {
+        return samples;
+    }
+
+    /**
+     * @return the live instances, ordered by their earliest measurement
+     */
+    public List<Instance> instances() {
+        List<Instance> live = new ArrayList<>(liveInstances);
+        for (Instance instance : allInstances) {
+            if (instance.mergedInto == null) live.add(instance);
+        }
+        return live;
+    }
+
+    private Instance nearestAnchor(double x, double y) {
+        nearest = null;
+        nearestDistanceSquared = reachMeters * reachMeters;
+        anchors.forEachCandidate(x, y, index -> {
+            Instance candidate = allInstances.get(index);
+            double dx = candidate.anchorX - x;
+            double dy = candidate.anchorY - y;
+            double distanceSquared = dx * dx + dy * dy;
+            // Ties go to the older instance, so the split doesn't depend on grid order
+            if (distanceSquared < nearestDistanceSquared
+                    || (distanceSquared == nearestDistanceSquared && (nearest == null || index < nearest.index))) {
+                nearest = candidate;
+                nearestDistanceSquared = distanceSquared;
+            }
+        });
+        Instance result = nearest;
+        nearest = null;
+        return result;
+    }
+
+    private void moveAnchor(Instance instance, double x, double y, int rssi) {
+        anchors.remove(instance.index, instance.anchorX, instance.anchorY);
+        instance.anchorX = x;
+        instance.anchorY = y;
+        instance.anchorRssi = rssi;
+        anchors.insert(instance.index, x, y);
+    }
+
+    /**
+     * Merge every instance whose anchor is within half the reach of this one's, repeating while
+     * the merged anchor keeps moving.
+     * @return the surviving instance
+     */
+    private Instance mergeConverged(Instance instance) {
+        double mergeDistanceSquared = reachMeters * reachMeters / 4;
+        while (true) {
+            Instance survivor = instance;
+            neighbors.clear();
+            anchors.forEachCandidate(survivor.anchorX, survivor.anchorY, index -> {
+                Instance candidate = allInstances.get(index);
+                double dx = candidate.anchorX - survivor.anchorX;
+                double dy = candidate.anchorY - survivor.anchorY;
+                if (candidate != survivor && dx * dx + dy * dy <= mergeDistanceSquared) neighbors.add(candidate);
+            });
+            if (neighbors.isEmpty()) return instance;
+
+            for (Instance other : neighbors) {
+                Instance older = other.index < instance.index ? other : instance;
+                Instance younger = older == instance ? other : instance;
+                anchors.remove(younger.index, younger.anchorX, younger.anchorY);
+                older.absorb(younger);
+                liveInstances--;
+                if (younger.anchorRssi > older.anchorRssi) {
+                    moveAnchor(older, younger.anchorX, younger.anchorY, younger.anchorRssi);
+                }
+                instance = older;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.wifisignaltracker.core;
+
+import java.util.List;
+
+/**
+ * Estimates where an SSID is broadcast from, given the measurements taken of it.
+ */
+public interface LocationEstimator {
+
+    /**
+     * @param ssid network the measurements belong to; estimators may use it to cache state between calls
+     * @param measurements all measurements of that network, never empty
+     */
+    GeoPoint estimate(String ssid, List<? extends SignalSample> measurements);
+
+    /**
+     * Forget any cached state, e.g. after the underlying data was cleared.
+     */
+    default void reset() {
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.wifisignaltracker.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fits a log-distance path-loss model to each SSID's measurements:
+ * <pre>rssi = txPower - 10 * exponent * log10(distance)</pre>
+ * Unlike the weighted centroid, the fit can place the access point off to the side of the
+ * route the measurements were taken along.
+ * <p>
+ * The four unknowns (east/north position, txPower, exponent) are solved with Levenberg-Marquardt
+ * in a local metric frame centred on the weighted centroid. Each SSID's solution is cached; when
+ * new measurements arrive the solver warm-starts from it, so an update costs a few iterations
+ * rather than a full refit. Iterations are capped per solve to keep refresh latency bounded.
+ * Falls back to the weighted centroid when there is too little data or the fit is degenerate.
+ * Safe to call from several threads for different SSIDs.
+ */
+public class PathLossEstimator implements LocationEstimator {
+
+    static final int MIN_MEASUREMENTS = 4;
+    static final int MAX_COLD_ITERATIONS = 50;
+    static final int MAX_WARM_ITERATIONS = 8;
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+    private static final double MIN_DISTANCE_M = 1.0; // The model is undefined at the antenna itself
+    private static final double INITIAL_EXPONENT = 2.7; // Typical for suburban streets
+    private static final double MIN_EXPONENT = 1.5;
+    private static final double MAX_EXPONENT = 6.0;
+    private static final double MIN_TX_POWER_DBM = -100.0;
+    private static final double MAX_TX_POWER_DBM = 0.0;
+    private static final double MAX_OFFSET_FROM_CENTROID_M = 2000.0; // Further than this, distrust the fit
+    private static final double CONVERGED_STEP_M = 0.01;
+    private static final double INITIAL_LAMBDA = 1e-2;
+    private static final int MAX_LAMBDA_INCREASES = 10;
+
+    /**
+     * A fitted model for one SSID, in a local frame anchored at (originLat, originLng).
+     */
+    static final class Solution {
+        final double originLat;
+        final double originLng;
+        final double east; // metres from origin
+        final double north;
+        final double txPower; // dBm at 1 m
+        final double exponent;
+        final int measurementCount;
+        final int iterations;
+
+        Solution(double originLat, double originLng, double east, double north,
+                 double txPower, double exponent, int measurementCount, int iterations) {
+            this.originLat = originLat;
+            this.originLng = originLng;
+            this.east = east;
+            this.north = north;
+            this.txPower = txPower;
+            this.exponent = exponent;
+            this.measurementCount = measurementCount;
+            this.iterations = iterations;
+        }
+
+        GeoPoint toGeoPoint() {
+            double lat = originLat + north / METERS_PER_DEGREE_LAT;
+            double lng = originLng + east / (METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(originLat)));
+            return new GeoPoint(lat, lng);
+        }
+    }
+
+    private final Map<String, Solution> solutions = new ConcurrentHashMap<>();
+
+    @Override
+    public GeoPoint estimate(String ssid, List<? extends SignalSample> measurements) {
+        GeoPoint centroid = SignalUtils.calculateWeightedCentroid(measurements);
+        if (measurements.size() < MIN_MEASUREMENTS) return centroid;
+
+        Solution previous = solutions.get(ssid);
+        if (previous != null && previous.measurementCount == measurements.size()) {
+            return previous.toGeoPoint(); // Nothing new since the last fit
+        }
+
+        Solution solution;
+        if (previous != null) {
+            solution = solve(measurements, previous, MAX_WARM_ITERATIONS);
+        } else {
+            solution = solve(measurements, initialGuess(measurements, centroid), MAX_COLD_ITERATIONS);
+        }
+
+        if (solution == null || distanceMeters(solution.toGeoPoint(), centroid) > MAX_OFFSET_FROM_CENTROID_M) {
+            solutions.remove(ssid);
+            return centroid;
+        }
+        solutions.put(ssid, solution);
+        return solution.toGeoPoint();
+    }
+
+    @Override
+    public void reset() {
+        solutions.clear();
+    }
+
+    /**
+     * @return the cached fit for an SSID, or null if it has none
+     */
+    Solution getSolution(String ssid) {
+        return solutions.get(ssid);
+    }
+
+    /**
+     * Cold start: put the access point at the weighted centroid and pick a txPower that explains
+     * the strongest measurement at its distance from there.
+     */
+    private static Solution initialGuess(List<? extends SignalSample> measurements, GeoPoint centroid) {
+        SignalSample strongest = measurements.get(0);
+        for (SignalSample m : measurements) {
+            if (m.getSignalStrength() > strongest.getSignalStrength()) strongest = m;
+        }
+        double distance = Math.max(MIN_DISTANCE_M, distanceMeters(centroid,
+                new GeoPoint(strongest.getLatitude(), strongest.getLongitude())));
+        double txPower = clamp(strongest.getSignalStrength() + 10 * INITIAL_EXPONENT * Math.log10(distance),
+                MIN_TX_POWER_DBM, MAX_TX_POWER_DBM);
+        return new Solution(centroid.latitude, centroid.longitude, 0, 0, txPower, INITIAL_EXPONENT, 0, 0);
+    }
+
+    /**
+     * Levenberg-Marquardt on the residuals rssi_i - model_i, starting from {@code start}.
+     * @return the fitted solution, or null if the normal equations are singular from the start
+     */
+    private static Solution solve(List<? extends SignalSample> measurements, Solution start, int maxIterations) {
+        int n = measurements.size();
+        double metersPerDegreeLng = METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(start.originLat));
+        double[] east = new double[n];
+        double[] north = new double[n];
+        double[] rssi = new double[n];
+        for (int i = 0; i < n; i++) {
+            SignalSample m = measurements.get(i);
+            east[i] = (m.getLongitude() - start.originLng) * metersPerDegreeLng;
+            north[i] = (m.getLatitude() - start.originLat) * METERS_PER_DEGREE_LAT;
+            rssi[i] = m.getSignalStrength();
+        }
+
+        double[] params = {start.east, start.north, start.txPower, start.exponent};
+        double cost = cost(params, east, north, rssi);
+        double lambda = INITIAL_LAMBDA;
+        double[][] jtj = new double[4][4];
+        double[] jtr = new double[4];
+        double[] gradient = new double[4];
+
+        int iteration = 0;
+        while (iteration < maxIterations) {
+            iteration++;
+
+            // Accumulate J^T J and J^T r, where J is the Jacobian of the model (not the residual)
+            for (double[] row : jtj) Arrays.fill(row, 0);
+            Arrays.fill(jtr, 0);
+            for (int i = 0; i < n; i++) {
+                double dx = params[0] - east[i];
+                double dy = params[1] - north[i];
+                double d2 = dx * dx + dy * dy;
+                boolean clamped = d2 < MIN_DISTANCE_M * MIN_DISTANCE_M;
+                double log10d = clamped ? 0 : 0.5 * Math.log10(d2);
+                double residual = rssi[i] - (params[2] - 10 * params[3] * log10d);
+
+                double radial = clamped ? 0 : -10 * params[3] / (Math.log(10) * d2);
+                gradient[0] = radial * dx;
+                gradient[1] = radial * dy;
+                gradient[2] = 1;
+                gradient[3] = -10 * log10d;
+
+                for (int a = 0; a < 4; a++) {
+                    jtr[a] += gradient[a] * residual;
+                    for (int b = a; b < 4; b++) {
+                        jtj[a][b] += gradient[a] * gradient[b];
+                    }
+                }
+            }
+            for (int a = 0; a < 4; a++) {
+                for (int b = 0; b < a; b++) jtj[a][b] = jtj[b][a];
+            }
+
+            // Try damped steps until one lowers the cost
+            double[] step = null;
+            for (int attempt = 0; attempt < MAX_LAMBDA_INCREASES; attempt++) {
+                double[][] damped = new double[4][4];
+                for (int a = 0; a < 4; a++) {
+                    damped[a] = jtj[a].clone();
+                    damped[a][a] += lambda * Math.max(jtj[a][a], 1e-9);
+                }
+                double[] candidateStep = solve4x4(damped, jtr.clone());
+                if (candidateStep == null) {
+                    lambda *= 10;
+                    continue;
+                }
+
+                double[] candidate = {
+                        params[0] + candidateStep[0],
+                        params[1] + candidateStep[1],
+                        clamp(params[2] + candidateStep[2], MIN_TX_POWER_DBM, MAX_TX_POWER_DBM),
+                        clamp(params[3] + candidateStep[3], MIN_EXPONENT, MAX_EXPONENT)
+                };
+                double candidateCost = cost(candidate, east, north, rssi);
+                if (candidateCost < cost) {
+                    params = candidate;
+                    cost = candidateCost;
+                    step = candidateStep;
+                    lambda = Math.max(lambda * 0.3, 1e-7);
+                    break;
+                }
+                lambda *= 10;
+            }
+
+            // No improving step, or the position has stopped moving: converged
+            if (step == null || Math.hypot(step[0], step[1]) < CONVERGED_STEP_M) break;
+        }
+
+        if (Double.isNaN(params[0]) || Double.isNaN(params[1])) return null;
+        return new Solution(start.originLat, start.originLng, params[0], params[1], params[2], params[3],
+                n, iteration);
+    }
+
+    private static double cost(double[] params, double[] east, double[] north, double[] rssi) {
+        double sum = 0;
+        for (int i = 0; i < rssi.length; i++) {
+            double dx = params[0] - east[i];
+            double dy = params[1] - north[i];
+            double d = Math.max(MIN_DISTANCE_M, Math.sqrt(dx * dx + dy * dy));
+            double residual = rssi[i] - (params[2] - 10 * params[3] * Math.log10(d));
+            sum += residual * residual;
+        }
+        return sum;
+    }
+
+    /**
+     * Solve a x = b by Gaussian elimination with partial pivoting.
+     * @return x, or null if a is singular
+     */
+    private static double[] solve4x4(double[][] a, double[] b) {
+        int size = b.length;
+        for (int col = 0; col < size; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < size; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) pivot = row;
+            }
+            if (Math.abs(a[pivot][col]) < 1e-12) return null;
+
+            double[] tmpRow = a[col]; a[col] = a[pivot]; a[pivot] = tmpRow;
+            double tmp = b[col]; b[col] = b[pivot]; b[pivot] = tmp;
+
+            for (int row = col + 1; row < size; row++) {
+                double factor = a[row][col] / a[col][col];
+                b[row] -= factor * b[col];
+                for (int k = col; k < size; k++) a[row][k] -= factor * a[col][k];
+            }
+        }
+        double[] x = new double[size];
+        for (int row = size - 1; row >= 0; row--) {
+            double sum = b[row];
+            for (int k = row + 1; k < size; k++) sum -= a[row][k] * x[k];
+            x[row] = sum / a[row][row];
+        }
+        return x;
+    }
+
+    private static double distanceMeters(GeoPoint a, GeoPoint b) {
+        double north = (a.latitude - b.latitude) * METERS_PER_DEGREE_LAT;
+        double east = (a.longitude - b.longitude) * METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(a.latitude));
+        return Math.hypot(north, east);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.wifisignaltracker.core;
+
+/**
+ * One signal strength reading at a position. The app's Room entity implements this,
+ * so estimators can work on database rows without copying them.
+ */
+public interface SignalSample {
+
+    double getLatitude();
+
+    double getLongitude();
+
+    /**
+     * @return signal strength in dBm
+     */
+    int getSignalStrength();
+}
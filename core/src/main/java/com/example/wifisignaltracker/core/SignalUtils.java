@@ -0,0 +1,81 @@
+package com.example.wifisignaltracker.core;
+
+import java.util.List;
+
+public class SignalUtils {
+
+    // Weighted centroid algorithm constants
+    // SignalDao.CENTROIDS_IN_BOUNDS_QUERY repeats this algorithm in SQL and must stay in sync
+    public static final int MIN_RSSI_FLOOR = -127; // Starting point when searching for the strongest signal
+    public static final int SIGNAL_FILTER_THRESHOLD_DB = 25; // Filter signals weaker than max by this amount
+    public static final double WEIGHT_OFFSET = 110.0; // Offset to ensure positive weights (min RSSI ~-110 dBm)
+    public static final double WEIGHT_EXPONENT = 6.0; // Exponential weight to heavily favor strong signals
+
+    // Signal tiers, strongest first, used to color markers
+    public static final int SIGNAL_TIER_COUNT = 4;
+    private static final int[] SIGNAL_TIER_MIN_DBM = {-50, -60, -70}; // Excellent, good, fair; the rest is poor
+    private static final float[] SIGNAL_TIER_HUES = {120f, 60f, 30f, 0f}; // Green, yellow, orange, red
+
+    /**
+     * @return 0 for excellent through {@link #SIGNAL_TIER_COUNT} - 1 for poor
+     */
+    public static int signalTier(int signalStrength) {
+        for (int tier = 0; tier < SIGNAL_TIER_MIN_DBM.length; tier++) {
+            if (signalStrength >= SIGNAL_TIER_MIN_DBM[tier]) return tier;
+        }
+        return SIGNAL_TIER_COUNT - 1;
+    }
+
+    /**
+     * Map a signal tier to a hue for Google Maps markers.
+     */
+    public static float tierHue(int tier) {
+        return SIGNAL_TIER_HUES[tier];
+    }
+
+    /**
+     * Map signal strength to a hue for Google Maps markers.
+     */
+    public static float signalHue(int signalStrength) {
+        return tierHue(signalTier(signalStrength));
+    }
+
+    /**
+     * Improved Weighted Centroid algorithm.
+     * To prevent a large number of weak signals from overwhelming a few strong ones,
+     * we use a higher power for weighting and only consider measurements within
+     * a reasonable range of the strongest detected signal.
+     */
+    public static GeoPoint calculateWeightedCentroid(List<? extends SignalSample> measurements) {
+        if (measurements == null || measurements.isEmpty()) return new GeoPoint(0,0);
+
+        // 1. Find the strongest signal in the set
+        int maxRssi = MIN_RSSI_FLOOR;
+        for (SignalSample m : measurements) {
+            if (m.getSignalStrength() > maxRssi) maxRssi = m.getSignalStrength();
+        }
+
+        double totalWeight = 0;
+        double weightedLat = 0;
+        double weightedLng = 0;
+
+        for (SignalSample m : measurements) {
+            // 2. Ignore signals that are significantly weaker than our best signal
+            // This prevents "background noise" from distant measurements from pulling the center away.
+            if (m.getSignalStrength() < (maxRssi - SIGNAL_FILTER_THRESHOLD_DB)) continue;
+
+            // 3. Use an exponential weight to heavily favor strong signals.
+            // A -30dBm signal will have vastly more influence than a -60dBm signal.
+            double weight = Math.pow(Math.max(1, WEIGHT_OFFSET + m.getSignalStrength()), WEIGHT_EXPONENT);
+
+            weightedLat += m.getLatitude() * weight;
+            weightedLng += m.getLongitude() * weight;
+            totalWeight += weight;
+        }
+
+        // Fallback if all were filtered
+        if (totalWeight == 0) return new GeoPoint(measurements.get(0).getLatitude(), measurements.get(0).getLongitude());
+
+        return new GeoPoint(weightedLat / totalWeight, weightedLng / totalWeight);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.wifisignaltracker.core;
+
+import java.util.List;
+
+/**
+ * {@link LocationEstimator} backed by {@link SignalUtils#calculateWeightedCentroid}.
+ */
+public class WeightedCentroidEstimator implements LocationEstimator {
+
+    @Override
+    public GeoPoint estimate(String ssid, List<? extends SignalSample> measurements) {
+        return SignalUtils.calculateWeightedCentroid(measurements);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.wifisignaltracker.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class InstanceClustererTest {
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+    private static final double REACH_METERS = 600;
+    // Wall-clock benchmarks only run with ./gradlew :core:test -Pbenchmarks
+    private static final boolean BENCHMARKS = Boolean.getBoolean("benchmarks");
+
+    @Test
+    public void testSplitsDistantAccessPointsSharingAName() {
+        InstanceClusterer<Sample> clusterer = new InstanceClusterer<>(REACH_METERS);
+        Random random = new Random(1);
+        // Interleaved, as a drive past three coffee shops of the same chain would record them
+        for (int i = 0; i < 300; i++) {
+            double offsetMeters = (i % 3) * 5000;
+            clusterer.add(around(47.0 + offsetMeters / METERS_PER_DEGREE_LAT, -122.0, random));
+        }
+
+        List<InstanceClusterer<Sample>.Instance> instances = clusterer.instances();
+
+        assertEquals(3, instances.size());
+        for (InstanceClusterer<Sample>.Instance instance : instances) {
+            assertEquals(100, instance.size());
+        }
+        // Ordered by earliest measurement
+        assertTrue(instances.get(0).getFirst().getLatitude() < instances.get(1).getFirst().getLatitude());
+    }
+
+    @Test
+    public void testDriveTraceBetweenTwoAccessPointsSplitsInTwo() {
+        InstanceClusterer<Sample> clusterer = new InstanceClusterer<>(REACH_METERS);
+        Random random = new Random(2);
+        // Two routers 1 km apart, both heard all along the road between them, sampled every 20 m
+        for (int meters = 0; meters <= 1000; meters += 20) {
+            double lat = 47.0 + meters / METERS_PER_DEGREE_LAT;
+            clusterer.add(new Sample(lat, -122.0, rssiAt(meters, random)));
+            clusterer.add(new Sample(lat, -122.0, rssiAt(1000 - meters, random)));
+        }
+
+        List<InstanceClusterer<Sample>.Instance> instances = clusterer.instances();
+
+        assertEquals(2, instances.size());
+        assertEquals(0, metersNorthOf47(instances.get(0).getCentroid()), 50);
+        assertEquals(1000, metersNorthOf47(instances.get(1).getCentroid()), 50);
+    }
+
+    @Test
+    public void testDrivePastOneAccessPointStaysOneInstance() {
+        InstanceClusterer<Sample> clusterer = new InstanceClusterer<>(REACH_METERS);
+        Random random = new Random(3);
+        // Heard from 300 m out on the approach until 300 m past it
+        for (int meters = -300; meters <= 300; meters += 10) {
+            clusterer.add(new Sample(47.0 + meters / METERS_PER_DEGREE_LAT, -122.0, rssiAt(Math.abs(meters), random)));
+        }
+
+        List<InstanceClusterer<Sample>.Instance> instances = clusterer.instances();
+
+        assertEquals(1, instances.size());
+        assertEquals(61, instances.get(0).size());
+        assertEquals(0, metersNorthOf47(instances.get(0).getCentroid()), 20);
+    }
+
+    @Test
+    public void testIsolatedMeasurementBecomesItsOwnInstance() {
+        InstanceClusterer<Sample> clusterer = new InstanceClusterer<>(REACH_METERS);
+        Sample first = new Sample(47.0, -122.0, -60);
+        Sample second = new Sample(47.0001, -122.0, -65);
+        Sample lone = new Sample(47.1, -122.0, -80);
+        InstanceClusterer<Sample>.Instance firstInstance = clusterer.add(first);
+        InstanceClusterer<Sample>.Instance loneInstance = clusterer.add(lone);
+        assertSame(firstInstance, clusterer.add(second));
+
+        List<InstanceClusterer<Sample>.Instance> instances = clusterer.instances();
+
+        assertEquals(2, instances.size());
+        assertSame(firstInstance, instances.get(0));
+        assertEquals(2, firstInstance.size());
+        assertSame(first, firstInstance.getFirst());
+        assertEquals(-60, firstInstance.getMaxRssi());
+        assertSame(loneInstance, instances.get(1));
+        assertEquals(1, loneInstance.size());
+    }
+
+    @Test
+    public void testAnchorsConvergingOnOneAccessPointMerge() {
+        InstanceClusterer<Sample> clusterer = new InstanceClusterer<>(REACH_METERS);
+        Sample west = new Sample(47.0, -122.0, -80);
+        Sample east = new Sample(47.0, east(700), -80);
+        InstanceClusterer<Sample>.Instance westInstance = clusterer.add(west);
+        InstanceClusterer<Sample>.Instance eastInstance = clusterer.add(east);
+        assertEquals(2, clusterer.instances().size());
+
+        // Stronger signals pull the west anchor east until it is within half the reach of the other
+        clusterer.add(new Sample(47.0, east(250), -70));
+        assertEquals(2, clusterer.instances().size());
+        assertSame(westInstance, clusterer.add(new Sample(47.0, east(420), -60)));
+
+        List<InstanceClusterer<Sample>.Instance> instances = clusterer.instances();
+        assertEquals(1, instances.size());
+        assertSame(westInstance, instances.get(0));
+        assertSame(westInstance, eastInstance.current());
+        assertSame(west, westInstance.getFirst());
+        assertEquals(4, westInstance.size());
+        assertEquals(-60, westInstance.getMaxRssi());
+    }
+
+    @Test
+    public void testAggregatesMatchBatchComputation() {
+        Random random = new Random(4);
+        InstanceClusterer<Sample> clusterer = new InstanceClusterer<>(REACH_METERS);
+        List<Sample> samples = new ArrayList<>();
+        List<InstanceClusterer<Sample>.Instance> joined = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Sample sample = new Sample(47.0 + random.nextDouble() * 0.03, -122.0 + random.nextDouble() * 0.04,
+                    -35 - random.nextInt(60));
+            samples.add(sample);
+            joined.add(clusterer.add(sample));
+        }
+
+        Map<InstanceClusterer<Sample>.Instance, List<Sample>> members = new LinkedHashMap<>();
+        for (int i = 0; i < samples.size(); i++) {
+            members.computeIfAbsent(joined.get(i).current(), instance -> new ArrayList<>()).add(samples.get(i));
+        }
+
+        List<InstanceClusterer<Sample>.Instance> instances = clusterer.instances();
+        assertTrue(instances.size() > 1);
+        assertEquals(instances, new ArrayList<>(members.keySet()));
+        for (InstanceClusterer<Sample>.Instance instance : instances) {
+            List<Sample> expected = members.get(instance);
+            assertEquals(expected.size(), instance.size());
+            assertSame(expected.get(0), instance.getFirst());
+
+            GeoPoint batch = SignalUtils.calculateWeightedCentroid(expected);
+            assertEquals(batch.latitude, instance.getCentroid().latitude, 1e-9);
+            assertEquals(batch.longitude, instance.getCentroid().longitude, 1e-9);
+            int maxRssi = SignalUtils.MIN_RSSI_FLOOR;
+            for (Sample s : expected) maxRssi = Math.max(maxRssi, s.getSignalStrength());
+            assertEquals(maxRssi, instance.getMaxRssi());
+
+            double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+            double minLng = Double.POSITIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+            for (Sample s : expected) {
+                minLat = Math.min(minLat, s.getLatitude());
+                maxLat = Math.max(maxLat, s.getLatitude());
+                minLng = Math.min(minLng, s.getLongitude());
+                maxLng = Math.max(maxLng, s.getLongitude());
+            }
+            assertTrue(instance.intersects(maxLat, maxLat + 1, maxLng, maxLng + 1));
+            assertFalse(instance.intersects(maxLat + 1e-7, maxLat + 1, minLng, maxLng));
+            assertFalse(instance.intersects(minLat, maxLat, minLng - 1, minLng - 1e-7));
+        }
+    }
+
+    @Test
+    public void testScalesNearLinearly() {
+        assumeTrue("Benchmark, run with -Pbenchmarks", BENCHMARKS);
+        Random random = new Random(5);
+        InstanceClusterer<Sample> clusterer = new InstanceClusterer<>(REACH_METERS);
+        long start = System.nanoTime();
+        // A city-wide chain: 200k sightings spread over a 20 x 20 km area
+        for (int i = 0; i < 200_000; i++) {
+            clusterer.add(new Sample(47.0 + random.nextDouble() * 0.18, -122.0 + random.nextDouble() * 0.26,
+                    -40 - random.nextInt(50)));
+        }
+        clusterer.instances();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(200_000, clusterer.size());
+        assertTrue("Clustering took " + elapsedMs + " ms", elapsedMs < 5000);
+    }
+
+    /**
+     * Log-distance path loss with 2 dB of noise, as a phone hears a router {@code meters} away.
+     */
+    private static int rssiAt(double meters, Random random) {
+        double rssi = -30 - 20 * Math.log10(Math.max(1, meters)) + random.nextGaussian() * 2;
+        return (int) Math.round(rssi);
+    }
+
+    private static Sample around(double latitude, double longitude, Random random) {
+        double dLat = (random.nextDouble() - 0.5) * 100 / METERS_PER_DEGREE_LAT;
+        double dLng = (random.nextDouble() - 0.5) * 100 / lngMetersPerDegree(latitude);
+        return new Sample(latitude + dLat, longitude + dLng, -50 - random.nextInt(40));
+    }
+
+    private static double east(double meters) {
+        return -122.0 + meters / lngMetersPerDegree(47.0);
+    }
+
+    private static double metersNorthOf47(GeoPoint point) {
+        return (point.latitude - 47.0) * METERS_PER_DEGREE_LAT;
+    }
+
+    private static double lngMetersPerDegree(double latitude) {
+        return METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(latitude));
+    }
+}
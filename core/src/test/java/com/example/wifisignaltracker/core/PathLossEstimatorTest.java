@@ -0,0 +1,94 @@
+package com.example.wifisignaltracker.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PathLossEstimatorTest {
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+    private static final GeoPoint ACCESS_POINT = new GeoPoint(47.0004, -122.0);
+    private static final double TX_POWER_DBM = -35;
+    private static final double EXPONENT = 2.8;
+
+    @Test
+    public void testRecoversAccessPointBetterThanCentroid() {
+        List<SignalSample> measurements = survey(new Random(1), 200);
+
+        GeoPoint centroid = SignalUtils.calculateWeightedCentroid(measurements);
+        GeoPoint fitted = new PathLossEstimator().estimate("AP", measurements);
+
+        double centroidError = distanceMeters(centroid, ACCESS_POINT);
+        double fittedError = distanceMeters(fitted, ACCESS_POINT);
+        assertTrue("Fit error " + fittedError + " m", fittedError < 10);
+        assertTrue("Fit " + fittedError + " m vs centroid " + centroidError + " m", fittedError < centroidError / 2);
+    }
+
+    @Test
+    public void testFallsBackToCentroidWithFewMeasurements() {
+        List<SignalSample> measurements = survey(new Random(2), PathLossEstimator.MIN_MEASUREMENTS - 1);
+
+        GeoPoint centroid = SignalUtils.calculateWeightedCentroid(measurements);
+        GeoPoint estimate = new PathLossEstimator().estimate("AP", measurements);
+
+        assertEquals(centroid.latitude, estimate.latitude, 0.0);
+        assertEquals(centroid.longitude, estimate.longitude, 0.0);
+    }
+
+    @Test
+    public void testNewMeasurementsWarmStartFromCachedFit() {
+        Random random = new Random(3);
+        List<SignalSample> measurements = survey(random, 200);
+        PathLossEstimator estimator = new PathLossEstimator();
+        estimator.estimate("AP", measurements);
+
+        measurements.addAll(survey(random, 20));
+        GeoPoint updated = estimator.estimate("AP", measurements);
+
+        PathLossEstimator.Solution warm = estimator.getSolution("AP");
+        assertNotNull(warm);
+        assertEquals(measurements.size(), warm.measurementCount);
+
+        // A cold solve of the same data does more work to reach the same fit
+        PathLossEstimator coldEstimator = new PathLossEstimator();
+        GeoPoint coldEstimate = coldEstimator.estimate("AP", measurements);
+        PathLossEstimator.Solution cold = coldEstimator.getSolution("AP");
+        assertNotNull(cold);
+        assertTrue("Warm " + warm.iterations + " vs cold " + cold.iterations + " iterations",
+                warm.iterations < cold.iterations);
+        assertEquals(0, distanceMeters(updated, coldEstimate), 0.5);
+        assertEquals(cold.txPower, warm.txPower, 0.1);
+        assertEquals(cold.exponent, warm.exponent, 0.01);
+        assertTrue(distanceMeters(updated, ACCESS_POINT) < 10);
+    }
+
+    /**
+     * Points along two perpendicular streets that both pass south-west of the access point,
+     * so the strongest readings (and the centroid) sit on the street rather than at the AP.
+     */
+    private static List<SignalSample> survey(Random random, int count) {
+        List<SignalSample> measurements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double along = (random.nextDouble() - 0.5) * 0.004;
+            double lat = i % 2 == 0 ? 47.0 : 47.0004 + along;
+            double lng = i % 2 == 0 ? -122.0 + along : -122.0006;
+            GeoPoint point = new GeoPoint(lat, lng);
+            double distance = Math.max(1.0, distanceMeters(point, ACCESS_POINT));
+            double rssi = TX_POWER_DBM - 10 * EXPONENT * Math.log10(distance) + random.nextGaussian() * 2;
+            measurements.add(new Sample(lat, lng, (int) Math.round(rssi)));
+        }
+        return measurements;
+    }
+
+    private static double distanceMeters(GeoPoint a, GeoPoint b) {
+        double north = (a.latitude - b.latitude) * METERS_PER_DEGREE_LAT;
+        double east = (a.longitude - b.longitude) * METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(a.latitude));
+        return Math.hypot(north, east);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.wifisignaltracker.core;
+
+/**
+ * Minimal {@link SignalSample} for tests.
+ */
+class Sample implements SignalSample {
+    private final double latitude;
+    private final double longitude;
+    private final int signalStrength;
+
+    Sample(double latitude, double longitude, int signalStrength) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.signalStrength = signalStrength;
+    }
+
+    @Override
+    public double getLatitude() {
+        return latitude;
+    }
+
+    @Override
+    public double getLongitude() {
+        return longitude;
+    }
+
+    @Override
+    public int getSignalStrength() {
+        return signalStrength;
+    }
+}
@@ -1,9 +1,6 @@
-package com.example.wifisignaltracker;
+package com.example.wifisignaltracker.core;
 
-import com.google.android.gms.maps.model.LatLng;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.robolectric.RobolectricTestRunner;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,15 +8,14 @@ import java.util.List;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
-@RunWith(RobolectricTestRunner.class)
 public class WeightedCentroidTest {
 
     @Test
     public void testCalculateWeightedCentroid_SinglePoint() {
-        List<SignalMeasurement> measurements = new ArrayList<>();
-        measurements.add(new SignalMeasurement(10.0, 20.0, -50, "TestSSID"));
+        List<SignalSample> measurements = new ArrayList<>();
+        measurements.add(new Sample(10.0, 20.0, -50));
 
-        LatLng centroid = SignalUtils.calculateWeightedCentroid(measurements);
+        GeoPoint centroid = SignalUtils.calculateWeightedCentroid(measurements);
 
         assertNotNull(centroid);
         assertEquals(10.0, centroid.latitude, 0.0001);
@@ -28,11 +24,11 @@ public class WeightedCentroidTest {
 
     @Test
     public void testCalculateWeightedCentroid_TwoEqualPoints() {
-        List<SignalMeasurement> measurements = new ArrayList<>();
-        measurements.add(new SignalMeasurement(10.0, 20.0, -50, "TestSSID"));
-        measurements.add(new SignalMeasurement(10.0, 22.0, -50, "TestSSID"));
+        List<SignalSample> measurements = new ArrayList<>();
+        measurements.add(new Sample(10.0, 20.0, -50));
+        measurements.add(new Sample(10.0, 22.0, -50));
 
-        LatLng centroid = SignalUtils.calculateWeightedCentroid(measurements);
+        GeoPoint centroid = SignalUtils.calculateWeightedCentroid(measurements);
 
         assertNotNull(centroid);
         // Midpoint
@@ -42,13 +38,13 @@ public class WeightedCentroidTest {
 
     @Test
     public void testCalculateWeightedCentroid_StrongerPull() {
-        List<SignalMeasurement> measurements = new ArrayList<>();
+        List<SignalSample> measurements = new ArrayList<>();
         // Strong signal at (10, 20)
-        measurements.add(new SignalMeasurement(10.0, 20.0, -40, "TestSSID"));
+        measurements.add(new Sample(10.0, 20.0, -40));
         // Weak signal at (10, 22)
-        measurements.add(new SignalMeasurement(10.0, 22.0, -80, "TestSSID"));
+        measurements.add(new Sample(10.0, 22.0, -80));
 
-        LatLng centroid = SignalUtils.calculateWeightedCentroid(measurements);
+        GeoPoint centroid = SignalUtils.calculateWeightedCentroid(measurements);
 
         assertNotNull(centroid);
         // Should be much closer to 20.0 than 22.0